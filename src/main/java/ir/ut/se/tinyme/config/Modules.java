@@ -15,6 +15,18 @@ public class Modules {
 
     public static final String ADDING_ORDER_FACTORY = "adding.order.factory";
 
+    public static final String SHARDED_MATCHING = "sharded.matching";
+
+    public static final String PIPELINED_PUBLISHING = "pipelined.publishing";
+
+    public static final String BINARY_RESPONSES = "binary.responses";
+
+    public static final String BATCHED_CONSUMPTION = "batched.consumption";
+
+    public static final String CONFLATED_OPENING_PRICES = "conflated.opening.prices";
+
+    public static final String MARKET_DATA_FEED = "market.data.feed";
+
     private static Environment environment;
 
     public Modules(Environment environment) {
@@ -5,24 +5,47 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 @Getter
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Builder
 public class Broker {
+    private static final AtomicLongFieldUpdater<Broker> CREDIT =
+            AtomicLongFieldUpdater.newUpdater(Broker.class, "credit");
+
     @EqualsAndHashCode.Include
     private long brokerId;
     private String name;
-    private long credit;
+    private volatile long credit;
 
     public void increaseCreditBy(long amount) {
         assert amount >= 0;
-        credit += amount;
+        CREDIT.addAndGet(this, amount);
     }
 
-    public void decreaseCreditBy(long amount) {
+    public boolean reserveCredit(long amount) {
         assert amount >= 0;
-        credit -= amount;
+        long current;
+        do {
+            current = credit;
+            if (current < amount)
+                return false;
+        } while (!CREDIT.compareAndSet(this, current, current - amount));
+        return true;
+    }
+
+    public void releaseCredit(long amount) {
+        increaseCreditBy(amount);
+    }
+
+    public boolean changeReservation(long reserved, long needed) {
+        if (needed <= reserved) {
+            releaseCredit(reserved - needed);
+            return true;
+        }
+        return reserveCredit(needed - reserved);
     }
 
     public boolean hasEnoughCredit(long amount) {
@@ -0,0 +1,11 @@
+package ir.ut.se.tinyme.domain.entity;
+
+public record DepthLevel(
+    int price,
+    long quantity,
+    int orderCount) {
+
+    public DepthLevel(PriceLevel level) {
+        this(level.getPrice(), level.getTotalQuantity(), level.getSize());
+    }
+}
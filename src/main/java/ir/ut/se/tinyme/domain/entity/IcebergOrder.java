@@ -74,6 +74,11 @@ public class IcebergOrder extends Order {
         displayedQuantity = Math.min(quantity, peakSize);
     }
 
+    void restoreQuantity(int quantity, int displayedQuantity) {
+        this.quantity = quantity;
+        this.displayedQuantity = displayedQuantity;
+    }
+
     @Override
     public void updateFromRequest(EnterOrderRq updateOrderRq) {
         super.updateFromRequest(updateOrderRq);
@@ -0,0 +1,8 @@
+package ir.ut.se.tinyme.domain.entity;
+
+public record LevelUpdate(
+    Side side,
+    int price,
+    long quantity,
+    int orderCount) {
+}
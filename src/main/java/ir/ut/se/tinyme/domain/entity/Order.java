@@ -91,6 +91,10 @@ public class Order {
         quantity -= amount;
     }
 
+    void restoreQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
     public void makeQuantityZero() {
         quantity = 0;
     }
@@ -103,6 +107,10 @@ public class Order {
         }
     }
 
+    public int queuePriority() {
+        return side == Side.BUY ? -price : price;
+    }
+
     public void queue() {
         status = OrderStatus.QUEUED;
     }
@@ -1,132 +1,393 @@
 package ir.ut.se.tinyme.domain.entity;
 
-import lombok.Getter;
-
 import java.util.*;
 
-import static java.lang.Math.abs;
+import static org.apache.commons.lang3.math.NumberUtils.max;
 import static org.apache.commons.lang3.math.NumberUtils.min;
 
-@Getter
 public class OrderBook {
-    private final LinkedList<Order> buyQueue;
-    private final LinkedList<Order> sellQueue;
+    private final TreeMap<Integer, PriceLevel> buyLevels;
+    private final TreeMap<Integer, PriceLevel> sellLevels;
+    private final HashMap<Long, PriceLevel.Node> buyIndex;
+    private final HashMap<Long, PriceLevel.Node> sellIndex;
+    private final OwnerIndex owners;
+    private final PriceVolumeTree volumes;
+    private final HashMap<Shareholder, Long> sellQuantityByShareholder;
+    private PriceLevel bestBuyLevel;
+    private PriceLevel bestSellLevel;
+    private final ArrayDeque<Runnable> journal;
+    private boolean journaling;
+    private LinkedHashSet<Integer> changedBuyLevels;
+    private LinkedHashSet<Integer> changedSellLevels;
 
     public OrderBook() {
-        buyQueue = new LinkedList<>();
-        sellQueue = new LinkedList<>();
+        buyLevels = new TreeMap<>();
+        sellLevels = new TreeMap<>();
+        buyIndex = new HashMap<>();
+        sellIndex = new HashMap<>();
+        owners = new OwnerIndex();
+        volumes = new PriceVolumeTree();
+        sellQuantityByShareholder = new HashMap<>();
+        journal = new ArrayDeque<>();
     }
 
     public void enqueue(Order order) {
-        List<Order> queue = getQueue(order.getSide());
-        ListIterator<Order> it = queue.listIterator();
-        while (it.hasNext()) {
-            if (order.queuesBefore(it.next())) {
-                it.previous();
-                break;
-            }
-        }
+        PriceLevel level = getLevel(order);
         order.queue();
-        it.add(order);
+        linked(level.add(order));
+        record(() -> removeByOrderId(order.getSide(), order.getOrderId()));
+    }
+
+    public void beginJournal() {
+        journal.clear();
+        journaling = true;
+    }
+
+    public void commitJournal() {
+        journal.clear();
+        journaling = false;
+    }
+
+    public void rollbackJournal() {
+        journaling = false;
+        while (!journal.isEmpty())
+            journal.pop().run();
+    }
+
+    private void record(Runnable undo) {
+        if (journaling)
+            journal.push(undo);
+    }
+
+    private void recordQuantities(Order order) {
+        if (!journaling)
+            return;
+        int quantity = order.getTotalQuantity();
+        if (order instanceof IcebergOrder icebergOrder) {
+            int displayedQuantity = icebergOrder.getDisplayedQuantity();
+            journal.push(() -> {
+                icebergOrder.restoreQuantity(quantity, displayedQuantity);
+                refreshQuantity(order);
+            });
+        } else {
+            journal.push(() -> {
+                order.restoreQuantity(quantity);
+                refreshQuantity(order);
+            });
+        }
+    }
+
+    private void linked(PriceLevel.Node node) {
+        Order order = node.order();
+        getIndex(order.getSide()).put(order.getOrderId(), node);
+        owners.add(node);
+        register(node, 1);
+        changed(order.getSide(), node.level());
+    }
+
+    public void trackChanges() {
+        if (changedBuyLevels != null)
+            return;
+        changedBuyLevels = new LinkedHashSet<>();
+        changedSellLevels = new LinkedHashSet<>();
+    }
+
+    private void changed(Side side, PriceLevel level) {
+        if (changedBuyLevels != null)
+            (side == Side.BUY ? changedBuyLevels : changedSellLevels).add(level.getPriority());
+    }
+
+    public List<LevelUpdate> drainChanges() {
+        List<LevelUpdate> updates = new ArrayList<>();
+        if (changedBuyLevels == null)
+            return updates;
+        drainChanges(Side.BUY, changedBuyLevels, updates);
+        drainChanges(Side.SELL, changedSellLevels, updates);
+        return updates;
+    }
+
+    private void drainChanges(Side side, LinkedHashSet<Integer> priorities, List<LevelUpdate> updates) {
+        for (int priority : priorities) {
+            PriceLevel level = getLevels(side).get(priority);
+            int price = side == Side.BUY ? -priority : priority;
+            if (level == null)
+                updates.add(new LevelUpdate(side, price, 0, 0));
+            else
+                updates.add(new LevelUpdate(side, price, level.getTotalQuantity(), level.getSize()));
+        }
+        priorities.clear();
+    }
+
+    private void register(PriceLevel.Node node, int sign) {
+        Order order = node.order();
+        volumes.add(order.getSide(), node.price(), (long) sign * node.quantity());
+        if (order.getSide() == Side.SELL)
+            sellQuantityByShareholder.merge(order.getShareholder(), (long) sign * node.totalQuantity(),
+                    (current, delta) -> current + delta == 0 ? null : current + delta);
+    }
+
+    private PriceLevel getLevel(Order order) {
+        TreeMap<Integer, PriceLevel> levels = getLevels(order.getSide());
+        PriceLevel level = levels.get(order.queuePriority());
+        if (level == null) {
+            level = new PriceLevel(order.queuePriority());
+            levels.put(level.getPriority(), level);
+            offerBestLevel(order.getSide(), level);
+        }
+        return level;
+    }
+
+    private void offerBestLevel(Side side, PriceLevel level) {
+        PriceLevel best = getBestLevel(side);
+        if (best == null || level.getPriority() < best.getPriority())
+            setBestLevel(side, level);
+    }
+
+    private PriceLevel getBestLevel(Side side) {
+        return side == Side.BUY ? bestBuyLevel : bestSellLevel;
+    }
+
+    private void setBestLevel(Side side, PriceLevel level) {
+        if (side == Side.BUY)
+            bestBuyLevel = level;
+        else
+            bestSellLevel = level;
+    }
+
+    private TreeMap<Integer, PriceLevel> getLevels(Side side) {
+        return side == Side.BUY ? buyLevels : sellLevels;
+    }
+
+    private HashMap<Long, PriceLevel.Node> getIndex(Side side) {
+        return side == Side.BUY ? buyIndex : sellIndex;
+    }
+
+    public LinkedList<Order> getBuyQueue() {
+        return getQueue(Side.BUY);
+    }
+
+    public LinkedList<Order> getSellQueue() {
+        return getQueue(Side.SELL);
     }
 
     private LinkedList<Order> getQueue(Side side) {
-        return side == Side.BUY ? buyQueue : sellQueue;
+        LinkedList<Order> queue = new LinkedList<>();
+        for (PriceLevel level : getLevels(side).values())
+            level.forEach(queue::add);
+        return queue;
     }
 
     public Order findByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        for (Order order : queue) {
-            if (order.getOrderId() == orderId)
-                return order;
-        }
-        return null;
+        PriceLevel.Node node = getIndex(side).get(orderId);
+        return node == null ? null : node.order();
+    }
+
+    public List<Order> findOrders(Broker broker, Shareholder shareholder, Side side) {
+        return owners.find(broker, shareholder, side, () -> allNodes(side));
+    }
+
+    private List<PriceLevel.Node> allNodes(Side side) {
+        List<PriceLevel.Node> nodes = new ArrayList<>();
+        if (side != Side.SELL)
+            nodes.addAll(buyIndex.values());
+        if (side != Side.BUY)
+            nodes.addAll(sellIndex.values());
+        return nodes;
     }
 
     public boolean removeByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        var it = queue.listIterator();
-        while (it.hasNext()) {
-            if (it.next().getOrderId() == orderId) {
-                it.remove();
-                return true;
+        PriceLevel.Node node = getIndex(side).remove(orderId);
+        if (node == null)
+            return false;
+        unlink(side, node);
+        return true;
+    }
+
+    private void unlink(Side side, PriceLevel.Node node) {
+        PriceLevel level = node.level();
+        level.unlink(node);
+        owners.remove(node);
+        register(node, -1);
+        changed(side, level);
+        if (level.isEmpty()) {
+            getLevels(side).remove(level.getPriority(), level);
+            if (level == getBestLevel(side)) {
+                var best = getLevels(side).firstEntry();
+                setBestLevel(side, best == null ? null : best.getValue());
             }
         }
-        return false;
     }
 
-    private List<Integer> calculateTheOpeningPriceBoundary(){
-        List<Integer> openingPrices = new LinkedList<>();
-        for (Order order : sellQueue) {
-            openingPrices.add(order.getPrice());
-        }
-        for (Order order : buyQueue) {
-            openingPrices.add(order.getPrice());
-        }
-        Collections.sort(openingPrices);
-        return openingPrices;
+    public void decreaseQuantity(Order order, int amount) {
+        recordQuantities(order);
+        order.decreaseQuantity(amount);
+        refreshQuantity(order);
+    }
+
+    public void refreshQuantity(Order order) {
+        PriceLevel.Node node = getIndex(order.getSide()).get(order.getOrderId());
+        if (node == null || node.order() != order)
+            return;
+        register(node, -1);
+        node.level().refresh(node);
+        register(node, 1);
+        changed(order.getSide(), node.level());
     }
 
     public AuctionData calculateTheBestOpeningPrice(int lastTradePrice){
-        List<Integer> openingPrices = calculateTheOpeningPriceBoundary();
-        int bestPrice = 0;
-        int maxQuantity = 0;
-        for (Integer price : openingPrices) {
-            int buyQuantity = 0, sellQuantity = 0;
-            for (Order order : buyQueue) {
-                if (order.getPrice() >= price)
-                    buyQuantity+=order.getQuantity();
-            }
-            for (Order order : sellQueue) {
-                if (order.getPrice() <= price)
-                    sellQuantity+=order.getQuantity();
-            }
-            if (min(buyQuantity,sellQuantity) > maxQuantity){
-                maxQuantity = min(buyQuantity,sellQuantity);
-                bestPrice = price;
-            }
-            if (min(sellQuantity,buyQuantity) == maxQuantity){
-                if(abs(price - lastTradePrice) < abs(bestPrice - lastTradePrice)){
-                    bestPrice = price;
-                }else if(price < bestPrice){
-                    bestPrice = price;
-                }
-            }
+        long totalBuy = volumes.total(Side.BUY);
+        long maxQuantity = 0;
+        if (totalBuy > 0 && volumes.total(Side.SELL) > 0) {
+            int crossing = volumes.lowestPriceReachingCombined(totalBuy);
+            maxQuantity = max(tradableQuantityAt(lowerPrice(crossing)), tradableQuantityAt(crossing),
+                    tradableQuantityAt(higherPrice(crossing)));
         }
-        return new AuctionData(bestPrice, maxQuantity);
+        if (maxQuantity == 0)
+            return new AuctionData(closestPrice(lastTradePrice, 0, highestPrice()), 0);
+
+        int lowestBestPrice = volumes.lowestPriceReaching(Side.SELL, maxQuantity);
+        int highestBestPrice = volumes.lowestPriceReaching(Side.BUY, totalBuy - maxQuantity + 1);
+        return new AuctionData(closestPrice(lastTradePrice, lowestBestPrice, highestBestPrice), (int) maxQuantity);
+    }
+
+    private long tradableQuantityAt(Integer price) {
+        if (price == null)
+            return 0;
+        long buyQuantity = volumes.total(Side.BUY) - volumes.volumeAtOrBelow(Side.BUY, price - 1);
+        long sellQuantity = volumes.volumeAtOrBelow(Side.SELL, price);
+        return min(buyQuantity, sellQuantity);
+    }
+
+    private int closestPrice(int target, int lowest, int highest) {
+        if (target <= lowest)
+            return lowest;
+        if (target >= highest)
+            return highest;
+        Integer below = floorPrice(target);
+        Integer above = higherPrice(target - 1);
+        int low = below == null ? lowest : below;
+        if (above == null || target - low <= above - target)
+            return low;
+        return above;
+    }
+
+    private Integer floorPrice(int price) {
+        Integer buyPriority = buyLevels.ceilingKey(-price);
+        Integer sellPrice = sellLevels.floorKey(price);
+        if (buyPriority == null)
+            return sellPrice;
+        if (sellPrice == null)
+            return -buyPriority;
+        return max(-buyPriority, sellPrice);
+    }
+
+    private Integer lowerPrice(int price) {
+        return floorPrice(price - 1);
+    }
+
+    private int highestPrice() {
+        Integer price = floorPrice(Integer.MAX_VALUE);
+        return price == null ? 0 : price;
+    }
+
+    private Integer higherPrice(int price) {
+        Integer buyPriority = buyLevels.lowerKey(-price);
+        Integer sellPrice = sellLevels.higherKey(price);
+        if (buyPriority == null)
+            return sellPrice;
+        if (sellPrice == null)
+            return -buyPriority;
+        return min(-buyPriority, sellPrice);
     }
 
     public Order matchWithFirst(Order newOrder) {
-        var queue = getQueue(newOrder.getSide().opposite());
-        if (newOrder.matches(queue.getFirst()))
-            return queue.getFirst();
+        Order first = getFirst(newOrder.getSide().opposite());
+        if (newOrder.matches(first))
+            return first;
         else
             return null;
     }
 
-    public void putBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
-        order.queue();
-        queue.addFirst(order);
+    public int executableQuantity(Order newOrder) {
+        long executable = 0;
+        for (PriceLevel level : getLevels(newOrder.getSide().opposite())
+                .headMap(-newOrder.queuePriority(), true).values()) {
+            executable += level.getExecutableQuantity();
+            if (executable >= newOrder.getQuantity())
+                return newOrder.getQuantity();
+        }
+        return (int) executable;
+    }
+
+    public long executionCost(Order newOrder) {
+        long cost = newOrder.getValue();
+        int remaining = newOrder.getQuantity();
+        for (PriceLevel level : getLevels(newOrder.getSide().opposite())
+                .headMap(-newOrder.queuePriority(), true).values()) {
+            if (remaining == 0)
+                break;
+            int quantity = (int) Math.min(remaining, level.getExecutableQuantity());
+            cost += (long) level.getPrice() * Math.min(quantity, paidQuantity(level, newOrder.getBroker()))
+                    - (long) newOrder.getPrice() * quantity;
+            remaining -= quantity;
+        }
+        return cost;
     }
 
-    public void restoreOrder(Order order) {
-        removeByOrderId(order.getSide(), order.getOrderId());
-        putBack(order);
+    private static long paidQuantity(PriceLevel level, Broker buyer) {
+        long quantity = 0;
+        for (Order order : level)
+            if (order.getBroker() != buyer)
+                quantity += order.getTotalQuantity();
+        return quantity;
+    }
+
+    public void replenish(IcebergOrder order) {
+        recordQuantities(order);
+        order.decreaseQuantity(order.getQuantity());
+        order.replenish();
     }
 
     public boolean hasOrderOfType(Side side) {
-        return !getQueue(side).isEmpty();
+        return getBestLevel(side) != null;
+    }
+
+    public Order getFirst(Side side) {
+        return getBestLevel(side).getFirst();
     }
 
     public void removeFirst(Side side) {
-        getQueue(side).removeFirst();
+        PriceLevel.Node first = getBestLevel(side).firstNode();
+        getIndex(side).remove(first.order().getOrderId(), first);
+        unlink(side, first);
+        record(() -> relinkFirst(first));
+    }
+
+    private void relinkFirst(PriceLevel.Node node) {
+        Side side = node.order().getSide();
+        PriceLevel level = node.level();
+        if (getLevels(side).putIfAbsent(level.getPriority(), level) == null)
+            offerBestLevel(side, level);
+        level.relinkFirst(node);
+        linked(node);
+    }
+
+    public DepthLevel getTopOfBook(Side side) {
+        PriceLevel best = getBestLevel(side);
+        return best == null ? null : new DepthLevel(best);
+    }
+
+    public List<DepthLevel> getDepth(Side side, int levels) {
+        List<DepthLevel> depth = new ArrayList<>();
+        for (PriceLevel level : getLevels(side).values()) {
+            if (depth.size() == levels)
+                break;
+            depth.add(new DepthLevel(level));
+        }
+        return depth;
     }
 
     public int totalSellQuantityByShareholder(Shareholder shareholder) {
-        return sellQueue.stream()
-                .filter(order -> order.getShareholder().equals(shareholder))
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
+        return sellQuantityByShareholder.getOrDefault(shareholder, 0L).intValue();
     }
 }
@@ -0,0 +1,52 @@
+package ir.ut.se.tinyme.domain.entity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+class OwnerIndex {
+    private final HashMap<Broker, Set<PriceLevel.Node>> byBroker = new HashMap<>();
+    private final HashMap<Shareholder, Set<PriceLevel.Node>> byShareholder = new HashMap<>();
+
+    void add(PriceLevel.Node node) {
+        Order order = node.order();
+        byBroker.computeIfAbsent(order.getBroker(), broker -> new LinkedHashSet<>()).add(node);
+        byShareholder.computeIfAbsent(order.getShareholder(), shareholder -> new LinkedHashSet<>()).add(node);
+    }
+
+    void remove(PriceLevel.Node node) {
+        Order order = node.order();
+        remove(byBroker, order.getBroker(), node);
+        remove(byShareholder, order.getShareholder(), node);
+    }
+
+    private static <K> void remove(Map<K, Set<PriceLevel.Node>> index, K owner, PriceLevel.Node node) {
+        Set<PriceLevel.Node> nodes = index.get(owner);
+        if (nodes != null && nodes.remove(node) && nodes.isEmpty())
+            index.remove(owner);
+    }
+
+    List<Order> find(Broker broker, Shareholder shareholder, Side side, Supplier<Collection<PriceLevel.Node>> all) {
+        Collection<PriceLevel.Node> candidates;
+        if (broker != null)
+            candidates = byBroker.getOrDefault(broker, Set.of());
+        else if (shareholder != null)
+            candidates = byShareholder.getOrDefault(shareholder, Set.of());
+        else
+            candidates = all.get();
+        List<Order> orders = new ArrayList<>();
+        for (PriceLevel.Node node : candidates) {
+            Order order = node.order();
+            if ((broker == null || broker.equals(order.getBroker()))
+                    && (shareholder == null || shareholder.equals(order.getShareholder()))
+                    && (side == null || side == order.getSide()))
+                orders.add(order);
+        }
+        return orders;
+    }
+}
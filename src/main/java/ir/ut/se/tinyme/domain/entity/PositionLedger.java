@@ -0,0 +1,78 @@
+package ir.ut.se.tinyme.domain.entity;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjLongConsumer;
+
+public class PositionLedger {
+    private static final int PAGE_SIZE = 64;
+
+    private static final class Page {
+        private final AtomicLongArray amounts = new AtomicLongArray(PAGE_SIZE);
+        private final AtomicReferenceArray<Security> securities = new AtomicReferenceArray<>(PAGE_SIZE);
+    }
+
+    private volatile Page[] pages = new Page[1];
+
+    public long get(Security security) {
+        Page page = findPage(security.getIndex());
+        return page == null ? 0 : page.amounts.get(security.getIndex() % PAGE_SIZE);
+    }
+
+    public void add(Security security, long amount) {
+        page(security).amounts.addAndGet(security.getIndex() % PAGE_SIZE, amount);
+    }
+
+    public boolean tryDecrease(Security security, long amount) {
+        AtomicLongArray amounts = page(security).amounts;
+        int slot = security.getIndex() % PAGE_SIZE;
+        long current;
+        do {
+            current = amounts.get(slot);
+            if (current < amount)
+                return false;
+        } while (!amounts.compareAndSet(slot, current, current - amount));
+        return true;
+    }
+
+    public void forEach(ObjLongConsumer<Security> action) {
+        for (Page page : pages) {
+            if (page == null)
+                continue;
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                Security security = page.securities.get(slot);
+                if (security != null)
+                    action.accept(security, page.amounts.get(slot));
+            }
+        }
+    }
+
+    private Page findPage(int index) {
+        Page[] pages = this.pages;
+        int pageIndex = index / PAGE_SIZE;
+        return pageIndex < pages.length ? pages[pageIndex] : null;
+    }
+
+    private Page page(Security security) {
+        int index = security.getIndex();
+        Page page = findPage(index);
+        if (page == null)
+            page = createPage(index / PAGE_SIZE);
+        int slot = index % PAGE_SIZE;
+        if (page.securities.get(slot) == null)
+            page.securities.compareAndSet(slot, null, security);
+        return page;
+    }
+
+    private synchronized Page createPage(int pageIndex) {
+        Page[] current = pages;
+        if (pageIndex < current.length && current[pageIndex] != null)
+            return current[pageIndex];
+        int length = pageIndex < current.length ? current.length : Math.max(pageIndex + 1, current.length * 2);
+        Page[] copy = Arrays.copyOf(current, length);
+        copy[pageIndex] = new Page();
+        pages = copy;
+        return copy[pageIndex];
+    }
+}
@@ -0,0 +1,157 @@
+package ir.ut.se.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class PriceLevel implements Iterable<Order> {
+    @Getter
+    private final int priority;
+    private Node head;
+    private Node tail;
+    @Getter
+    private int size;
+    @Getter
+    private long totalQuantity;
+    @Getter
+    private long executableQuantity;
+
+    static final class Node {
+        private final Order order;
+        private final PriceLevel level;
+        private Node prev;
+        private Node next;
+        private final int price;
+        private int quantity;
+        private int totalQuantity;
+
+        private Node(Order order, PriceLevel level) {
+            this.order = order;
+            this.level = level;
+            this.price = order.getPrice();
+            this.quantity = order.getQuantity();
+            this.totalQuantity = order.getTotalQuantity();
+        }
+
+        Order order() {
+            return order;
+        }
+
+        PriceLevel level() {
+            return level;
+        }
+
+        int price() {
+            return price;
+        }
+
+        int quantity() {
+            return quantity;
+        }
+
+        int totalQuantity() {
+            return totalQuantity;
+        }
+    }
+
+    public PriceLevel(int priority) {
+        this.priority = priority;
+    }
+
+    Node add(Order order) {
+        Node node = new Node(order, this);
+        if (tail == null || !order.queuesBefore(tail.order)) {
+            linkAfter(tail, node);
+            return node;
+        }
+        Node current = head;
+        while (!order.queuesBefore(current.order))
+            current = current.next;
+        linkAfter(current.prev, node);
+        return node;
+    }
+
+    void relinkFirst(Node node) {
+        linkAfter(null, node);
+    }
+
+    void unlink(Node node) {
+        if (node.prev == null)
+            head = node.next;
+        else
+            node.prev.next = node.next;
+        if (node.next == null)
+            tail = node.prev;
+        else
+            node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        size--;
+        totalQuantity -= node.quantity;
+        executableQuantity -= node.totalQuantity;
+    }
+
+    void refresh(Node node) {
+        totalQuantity += node.order.getQuantity() - node.quantity;
+        executableQuantity += node.order.getTotalQuantity() - node.totalQuantity;
+        node.quantity = node.order.getQuantity();
+        node.totalQuantity = node.order.getTotalQuantity();
+    }
+
+    private void linkAfter(Node previous, Node node) {
+        Node next = previous == null ? head : previous.next;
+        node.prev = previous;
+        node.next = next;
+        if (previous == null)
+            head = node;
+        else
+            previous.next = node;
+        if (next == null)
+            tail = node;
+        else
+            next.prev = node;
+        size++;
+        totalQuantity += node.quantity;
+        executableQuantity += node.totalQuantity;
+    }
+
+    Node firstNode() {
+        return head;
+    }
+
+    public Order getFirst() {
+        if (head == null)
+            throw new NoSuchElementException();
+        return head.order;
+    }
+
+    public int getPrice() {
+        return getFirst().getPrice();
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private Node next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                Order order = next.order;
+                next = next.next;
+                return order;
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package ir.ut.se.tinyme.domain.entity;
+
+import java.util.Arrays;
+
+public class PriceVolumeTree {
+    private static final int MAX_PRICE = Integer.MAX_VALUE;
+
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private long[] buyVolume = new long[64];
+    private long[] sellVolume = new long[64];
+    private int nodeCount = 1;
+    private int freeNodes;
+    private int freeList;
+
+    public void add(Side side, int price, long quantity) {
+        int parent = -1;
+        int node = 0;
+        int low = 0, high = MAX_PRICE;
+        while (true) {
+            if (side == Side.BUY)
+                buyVolume[node] += quantity;
+            else
+                sellVolume[node] += quantity;
+            if (parent >= 0 && buyVolume[node] == 0 && sellVolume[node] == 0) {
+                if (left[parent] == node)
+                    left[parent] = 0;
+                else
+                    right[parent] = 0;
+                free(node);
+                return;
+            }
+            if (low == high)
+                return;
+            int mid = low + (high - low) / 2;
+            parent = node;
+            if (price <= mid) {
+                if (left[node] == 0) {
+                    int child = newNode();
+                    left[node] = child;
+                }
+                node = left[node];
+                high = mid;
+            } else {
+                if (right[node] == 0) {
+                    int child = newNode();
+                    right[node] = child;
+                }
+                node = right[node];
+                low = mid + 1;
+            }
+        }
+    }
+
+    public int size() {
+        return nodeCount - freeNodes;
+    }
+
+    public long total(Side side) {
+        return side == Side.BUY ? buyVolume[0] : sellVolume[0];
+    }
+
+    public long volumeAtOrBelow(Side side, int price) {
+        if (price < 0)
+            return 0;
+        long[] volume = side == Side.BUY ? buyVolume : sellVolume;
+        long sum = 0;
+        int node = 0;
+        int low = 0, high = MAX_PRICE;
+        while (true) {
+            if (low == high)
+                return sum + volume[node];
+            int mid = low + (high - low) / 2;
+            if (price <= mid) {
+                if (left[node] == 0)
+                    return sum;
+                node = left[node];
+                high = mid;
+            } else {
+                if (left[node] != 0)
+                    sum += volume[left[node]];
+                if (right[node] == 0)
+                    return sum;
+                node = right[node];
+                low = mid + 1;
+            }
+        }
+    }
+
+    public int lowestPriceReaching(Side side, long target) {
+        return lowestPriceReaching(target, side == Side.BUY, side == Side.SELL);
+    }
+
+    public int lowestPriceReachingCombined(long target) {
+        return lowestPriceReaching(target, true, true);
+    }
+
+    private int lowestPriceReaching(long target, boolean countBuy, boolean countSell) {
+        if (target <= 0)
+            return 0;
+        if (weighted(0, countBuy, countSell) < target)
+            return -1;
+        long sum = 0;
+        int node = 0;
+        int low = 0, high = MAX_PRICE;
+        while (low < high) {
+            int mid = low + (high - low) / 2;
+            long leftVolume = left[node] == 0 ? 0 : weighted(left[node], countBuy, countSell);
+            if (sum + leftVolume >= target) {
+                node = left[node];
+                high = mid;
+            } else {
+                sum += leftVolume;
+                node = right[node];
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private long weighted(int node, boolean countBuy, boolean countSell) {
+        return (countBuy ? buyVolume[node] : 0) + (countSell ? sellVolume[node] : 0);
+    }
+
+    private int newNode() {
+        if (freeList != 0) {
+            int node = freeList;
+            freeList = left[node];
+            freeNodes--;
+            left[node] = 0;
+            return node;
+        }
+        if (nodeCount == left.length) {
+            int capacity = left.length * 2;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            buyVolume = Arrays.copyOf(buyVolume, capacity);
+            sellVolume = Arrays.copyOf(sellVolume, capacity);
+        }
+        return nodeCount++;
+    }
+
+    private void free(int node) {
+        if (left[node] != 0)
+            free(left[node]);
+        if (right[node] != 0)
+            free(right[node]);
+        right[node] = 0;
+        buyVolume[node] = 0;
+        sellVolume[node] = 0;
+        left[node] = freeList;
+        freeList = node;
+        freeNodes++;
+    }
+}
@@ -11,12 +11,16 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
 @Getter
 @Builder
 public class Security {
+    @Setter
+    private int index;
     private String isin;
     @Builder.Default
     private int tickSize = 1;
@@ -25,9 +29,7 @@ public class Security {
     @Builder.Default
     private OrderBook orderBook = new OrderBook();
     @Builder.Default
-    private OrderBook stopLimitOrderList = new OrderBook();
-    @Builder.Default
-    private OrderBook selectedOrdersList = new OrderBook();
+    private StopLimitOrderBook stopLimitOrderList = new StopLimitOrderBook();
     @Setter
     @Builder.Default
     private int lastTradePrice = 0;
@@ -47,16 +49,15 @@ public class Security {
         }
 
         if (enterOrderRq.getSide() == Side.BUY && (enterOrderRq.getStopPrice() != 0 || this.state == MatcherState.AUCTION)) {
-            if (!broker.hasEnoughCredit((long) enterOrderRq.getPrice() * enterOrderRq.getQuantity())) {
+            if (!broker.reserveCredit((long) enterOrderRq.getPrice() * enterOrderRq.getQuantity())) {
                 results.add(MatchResult.notEnoughCredit(OrderFactory.getInstance().createOrder(enterOrderRq, shareholder, this, broker)));
                 return results;
             }
-            broker.decreaseCreditBy((long) enterOrderRq.getPrice() * enterOrderRq.getQuantity());
         }
 
             Order order = OrderFactory.getInstance().createOrder(enterOrderRq, shareholder, this, broker);
-            if (order instanceof StopLimitOrder) {
-                stopLimitOrderList.enqueue(order);
+            if (order instanceof StopLimitOrder stopLimitOrder) {
+                stopLimitOrderList.enqueue(stopLimitOrder);
                 results.add(MatchResult.noMatchingOccurred());
                 return results;
             } else {
@@ -74,15 +75,37 @@ public class Security {
             }
         }
         if (order.getSide() == Side.BUY)
-            order.getBroker().increaseCreditBy(order.getValue());
-        orderBook.removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
-        if (this.state == MatcherState.AUCTION) {
-            this.setAuctionData(orderBook.calculateTheBestOpeningPrice(this.lastTradePrice));
-            return MatchResult.newOpenPriceCalculated(this);
-        }
+            order.getBroker().releaseCredit(order.getValue());
+        if (order instanceof StopLimitOrder)
+            stopLimitOrderList.removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
+        else
+            orderBook.removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
+        if (this.state == MatcherState.AUCTION)
+            return recalculateOpeningPrice();
         return null;
     }
 
+    public List<Order> cancelOrders(Broker broker, Shareholder shareholder, Side side) {
+        List<Order> cancelled = new ArrayList<>(orderBook.findOrders(broker, shareholder, side));
+        cancelled.addAll(stopLimitOrderList.findOrders(broker, shareholder, side));
+        HashMap<Broker, Long> refunds = new HashMap<>();
+        for (Order order : cancelled) {
+            if (order instanceof StopLimitOrder)
+                stopLimitOrderList.removeByOrderId(order.getSide(), order.getOrderId());
+            else
+                orderBook.removeByOrderId(order.getSide(), order.getOrderId());
+            if (order.getSide() == Side.BUY)
+                refunds.merge(order.getBroker(), order.getValue(), Long::sum);
+        }
+        refunds.forEach(Broker::releaseCredit);
+        return cancelled;
+    }
+
+    public MatchResult recalculateOpeningPrice() {
+        this.setAuctionData(orderBook.calculateTheBestOpeningPrice(this.lastTradePrice));
+        return MatchResult.newOpenPriceCalculated(this);
+    }
+
     public LinkedList<MatchResult> updateOrder(EnterOrderRq updateOrderRq, Matcher matcher) throws InvalidRequestException {
         LinkedList<MatchResult> results = new LinkedList<>();
         Order order;
@@ -95,34 +118,30 @@ public class Security {
             return results;
         }
 
-        if (order instanceof StopLimitOrder) {
-            return UpdateStopLimitOrder(updateOrderRq, results, order);
+        if (order instanceof StopLimitOrder stopLimitOrder) {
+            return UpdateStopLimitOrder(updateOrderRq, results, stopLimitOrder);
         } else {
             return UpdateNormalOrder(updateOrderRq, matcher, results, order);
         }
     }
 
     private LinkedList<MatchResult> UpdateNormalOrder(EnterOrderRq updateOrderRq, Matcher matcher, LinkedList<MatchResult> results, Order order) {
-        if (updateOrderRq.getSide() == Side.BUY) {
-            order.getBroker().increaseCreditBy(order.getValue());
-        }
+        long heldCredit = order.getSide() == Side.BUY ? order.getValue() : 0;
         Order originalOrder = order.snapshot();
         order.updateFromRequest(updateOrderRq);
         if (!LosesPriority(originalOrder, updateOrderRq)) {
-            if (updateOrderRq.getSide() == Side.BUY) {
-                order.getBroker().decreaseCreditBy(order.getValue());
+            orderBook.refreshQuantity(order);
+            if (order.getSide() == Side.BUY) {
+                order.getBroker().changeReservation(heldCredit, order.getValue());
             }
             results.add(MatchResult.executed(order, List.of()));
             return results;
         }
 
         orderBook.removeByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
-        results = matcher.execute(order);
+        results = matcher.execute(order, heldCredit);
         if (results.getLast().outcome() != MatchingOutcome.EXECUTED) {
             orderBook.enqueue(originalOrder);
-            if (updateOrderRq.getSide() == Side.BUY) {
-                originalOrder.getBroker().decreaseCreditBy(originalOrder.getValue());
-            }
         }
         return results;
     }
@@ -133,20 +152,14 @@ public class Security {
                 || ((order instanceof IcebergOrder icebergOrder) && (icebergOrder.getPeakSize() < updateOrderRq.getPeakSize()));
     }
 
-    private static LinkedList<MatchResult> UpdateStopLimitOrder(EnterOrderRq updateOrderRq, LinkedList<MatchResult> results, Order order) {
-        if (order.getSide() == Side.BUY) {
-            order.getBroker().increaseCreditBy(order.getValue());
-        }
-        if (updateOrderRq.getSide() == Side.BUY && !order.getBroker().hasEnoughCredit(
+    private LinkedList<MatchResult> UpdateStopLimitOrder(EnterOrderRq updateOrderRq, LinkedList<MatchResult> results, StopLimitOrder order) {
+        if (order.getSide() == Side.BUY && !order.getBroker().changeReservation(order.getValue(),
                 (long) updateOrderRq.getPrice() * updateOrderRq.getQuantity())) {
-            order.getBroker().decreaseCreditBy(order.getValue());
             results.add(MatchResult.notEnoughCredit(order.snapshotWithRQ(updateOrderRq.getRequestId())));
             return results;
         }
         order.updateFromRequest(updateOrderRq);
-        if (order.getSide() == Side.BUY) {
-            order.getBroker().decreaseCreditBy(order.getValue());
-        }
+        stopLimitOrderList.requeue(order);
         results.add(MatchResult.executed(order, List.of()));
         return results;
     }
@@ -175,24 +188,4 @@ public class Security {
         }
         return order;
     }
-
-    public void FillSelectedOrderList() {
-        if(this.state == MatcherState.AUCTION){
-            while(!orderBook.getBuyQueue().isEmpty() &&
-                    orderBook.getBuyQueue().getFirst().price >= auctionData.getBestOpeningPrice())
-            {
-                 Order order = orderBook.getBuyQueue().getFirst();
-                 order.getBroker().increaseCreditBy((long)order.getPrice() * order.getQuantity());
-                 orderBook.getBuyQueue().removeFirst();
-                 selectedOrdersList.enqueue(order);
-            }
-        } else {
-            while (!orderBook.getBuyQueue().isEmpty()) {
-                Order order = orderBook.getBuyQueue().getFirst();
-                order.getBroker().increaseCreditBy((long)order.getPrice() * order.getQuantity());
-                orderBook.getBuyQueue().removeFirst();
-                selectedOrdersList.enqueue(order);
-            }
-        }
-    }
 }
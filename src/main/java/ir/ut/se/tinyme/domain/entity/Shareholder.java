@@ -1,5 +1,6 @@
 package ir.ut.se.tinyme.domain.entity;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -16,22 +17,28 @@ public class Shareholder {
     @EqualsAndHashCode.Include
     private long shareholderId;
     private String name;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
     @Builder.Default
-    private Map<Security, Integer> positions = new HashMap<>();
+    private final PositionLedger positions = new PositionLedger();
 
     public void incPosition(Security security, int amount) {
         assert amount >= 0;
-        positions.put(security, positions.getOrDefault(security, 0) + amount);
+        positions.add(security, amount);
     }
 
     public void decPosition(Security security, int amount) {
         assert amount >= 0;
-        int currentPositions = positions.getOrDefault(security, 0);
-        if (currentPositions < amount)
+        if (!positions.tryDecrease(security, amount))
             throw new IllegalArgumentException("Amount to be decreased is greater than shareholder's current position");
-        positions.put(security, currentPositions - amount);
     }
     public boolean hasEnoughPositionsOn(Security security, int position) {
-        return positions.getOrDefault(security, 0) >= position;
+        return positions.get(security) >= position;
+    }
+
+    public Map<Security, Integer> getPositions() {
+        Map<Security, Integer> snapshot = new HashMap<>();
+        positions.forEach((security, amount) -> snapshot.put(security, (int) amount));
+        return snapshot;
     }
 }
@@ -0,0 +1,110 @@
+package ir.ut.se.tinyme.domain.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+
+public class StopLimitOrderBook {
+    private final TreeMap<Integer, PriceLevel> buyTriggers;
+    private final TreeMap<Integer, PriceLevel> sellTriggers;
+    private final HashMap<Long, PriceLevel.Node> buyIndex;
+    private final HashMap<Long, PriceLevel.Node> sellIndex;
+    private final OwnerIndex owners;
+
+    public StopLimitOrderBook() {
+        buyTriggers = new TreeMap<>();
+        sellTriggers = new TreeMap<>(Collections.reverseOrder());
+        buyIndex = new HashMap<>();
+        sellIndex = new HashMap<>();
+        owners = new OwnerIndex();
+    }
+
+    public void enqueue(StopLimitOrder order) {
+        PriceLevel level = getTriggers(order.getSide()).computeIfAbsent(order.getStopPrice(), PriceLevel::new);
+        PriceLevel.Node node = level.add(order);
+        getIndex(order.getSide()).put(order.getOrderId(), node);
+        owners.add(node);
+    }
+
+    private TreeMap<Integer, PriceLevel> getTriggers(Side side) {
+        return side == Side.BUY ? buyTriggers : sellTriggers;
+    }
+
+    private HashMap<Long, PriceLevel.Node> getIndex(Side side) {
+        return side == Side.BUY ? buyIndex : sellIndex;
+    }
+
+    public LinkedList<Order> getBuyQueue() {
+        return getQueue(Side.BUY);
+    }
+
+    public LinkedList<Order> getSellQueue() {
+        return getQueue(Side.SELL);
+    }
+
+    private LinkedList<Order> getQueue(Side side) {
+        LinkedList<Order> queue = new LinkedList<>();
+        for (PriceLevel level : getTriggers(side).values())
+            level.forEach(queue::add);
+        return queue;
+    }
+
+    public StopLimitOrder findByOrderId(Side side, long orderId) {
+        PriceLevel.Node node = getIndex(side).get(orderId);
+        return node == null ? null : (StopLimitOrder) node.order();
+    }
+
+    public List<Order> findOrders(Broker broker, Shareholder shareholder, Side side) {
+        return owners.find(broker, shareholder, side, () -> allNodes(side));
+    }
+
+    private List<PriceLevel.Node> allNodes(Side side) {
+        List<PriceLevel.Node> nodes = new ArrayList<>();
+        if (side != Side.SELL)
+            nodes.addAll(buyIndex.values());
+        if (side != Side.BUY)
+            nodes.addAll(sellIndex.values());
+        return nodes;
+    }
+
+    public boolean removeByOrderId(Side side, long orderId) {
+        PriceLevel.Node node = getIndex(side).remove(orderId);
+        if (node == null)
+            return false;
+        unlink(side, node);
+        return true;
+    }
+
+    private void unlink(Side side, PriceLevel.Node node) {
+        PriceLevel level = node.level();
+        level.unlink(node);
+        owners.remove(node);
+        if (level.isEmpty())
+            getTriggers(side).remove(level.getPriority(), level);
+    }
+
+    public void requeue(StopLimitOrder order) {
+        if (removeByOrderId(order.getSide(), order.getOrderId()))
+            enqueue(order);
+    }
+
+    public StopLimitOrder popActivatable(Side side, int lastTradePrice) {
+        var best = getTriggers(side).firstEntry();
+        if (best == null)
+            return null;
+        PriceLevel.Node first = best.getValue().firstNode();
+        StopLimitOrder order = (StopLimitOrder) first.order();
+        if (!order.canBeActivate(lastTradePrice))
+            return null;
+        getIndex(side).remove(order.getOrderId(), first);
+        unlink(side, first);
+        return order;
+    }
+
+    public boolean hasOrderOfType(Side side) {
+        return !getTriggers(side).isEmpty();
+    }
+}
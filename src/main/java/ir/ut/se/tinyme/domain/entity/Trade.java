@@ -35,16 +35,4 @@ public class Trade {
         return (long) price * quantity;
     }
 
-    public void increaseSellersCredit() {
-        sell.getBroker().increaseCreditBy(getTradedValue());
-    }
-
-    public void decreaseBuyersCredit() {
-        buy.getBroker().decreaseCreditBy(getTradedValue());
-    }
-
-    public boolean buyerHasEnoughCredit() {
-        return buy.getBroker().hasEnoughCredit(getTradedValue());
-    }
-
 }
@@ -5,80 +5,133 @@ import ir.ut.se.tinyme.messaging.request.MatcherState;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 @Service
 public class Matcher {
     public MatchResult match(Order newOrder) {
+        return match(newOrder, 0);
+    }
+
+    private MatchResult match(Order newOrder, long heldCredit) {
         OrderBook orderBook = newOrder.getSecurity().getOrderBook();
-        LinkedList<Trade> trades = new LinkedList<>();
+        long reservedCredit = heldCredit;
+        if (newOrder.getSide() == Side.BUY && newOrder.getSecurity().getState() == MatcherState.CONTINUOUS) {
+            reservedCredit = orderBook.executionCost(newOrder);
+            if (!newOrder.getBroker().changeReservation(heldCredit, reservedCredit))
+                return MatchResult.notEnoughCredit(newOrder);
+        }
 
+        LinkedList<Trade> trades = new LinkedList<>();
         while (orderBook.hasOrderOfType(newOrder.getSide().opposite()) && newOrder.getQuantity() > 0) {
-            Order matchingOrder = orderBook.matchWithFirst(newOrder);
-            if (matchingOrder == null) break;
-            Trade trade = createTrade(newOrder, orderBook, matchingOrder);
-            MatchResult result = handleCreditAfterTrade(newOrder, trades, trade);
-            if (result != null) return result;
-
-            handlePositionsAfterTrade(newOrder, orderBook, matchingOrder);
+            if (orderBook.matchWithFirst(newOrder) == null) break;
+            sweepLevel(newOrder, orderBook, trades);
         }
 
-        return getMatchResultAfterMatch(newOrder, trades);
+        return getMatchResultAfterMatch(newOrder, trades, reservedCredit);
     }
 
-    private Trade createTrade(Order newOrder, OrderBook orderBook, Order matchingOrder){
-        int tradePrice = this.calculateTradePrice(matchingOrder, newOrder.getSecurity());
-        return new Trade(newOrder.getSecurity(), tradePrice, Math.min(newOrder.getQuantity(),
-                matchingOrder.getQuantity()), newOrder, matchingOrder);
+    private void sweepLevel(Order newOrder, OrderBook orderBook, LinkedList<Trade> trades) {
+        Side side = newOrder.getSide().opposite();
+        int levelPrice = orderBook.getFirst(side).getPrice();
+        int tradePrice = calculateTradePrice(orderBook.getFirst(side), newOrder.getSecurity());
+        do {
+            Order matchingOrder = orderBook.getFirst(side);
+            trades.add(new Trade(newOrder.getSecurity(), tradePrice, Math.min(newOrder.getQuantity(),
+                    matchingOrder.getQuantity()), newOrder, matchingOrder));
+            handlePositionsAfterTrade(newOrder, orderBook, matchingOrder);
+        } while (newOrder.getQuantity() > 0 && orderBook.hasOrderOfType(side)
+                && orderBook.getFirst(side).getPrice() == levelPrice);
     }
 
-    private MatchResult getMatchResultAfterMatch(Order newOrder, LinkedList<Trade> trades) {
-        if ((newOrder.getQuantity() > 0 && newOrder.getSide() == Side.BUY &&
-                !newOrder.getBroker().hasEnoughCredit((long) newOrder.getPrice() * newOrder.getQuantity()))) {
-            rollbackTrades(newOrder, trades);
-            return MatchResult.notEnoughCredit(newOrder);
+    private MatchResult getMatchResultAfterMatch(Order newOrder, LinkedList<Trade> trades, long reservedCredit) {
+        if (newOrder.getSide() == Side.BUY) {
+            long cost = buyerCost(newOrder, trades);
+            assert cost <= reservedCredit;
+            newOrder.getBroker().releaseCredit(reservedCredit - cost);
         }
+        settleCredits(newOrder, trades);
+        if (!trades.isEmpty())
+            newOrder.getSecurity().setLastTradePrice(trades.getLast().getPrice());
         if (newOrder.getStatus() == OrderStatus.ACTIVE){
             return MatchResult.stopLimitOrderActivated (newOrder, trades);
         }
         return MatchResult.executed(newOrder, trades);
     }
 
-    private static void handlePositionsAfterTrade(Order newOrder, OrderBook orderBook, Order matchingOrder) {
-        if (newOrder.getQuantity() >= matchingOrder.getQuantity()) {
-            newOrder.decreaseQuantity(matchingOrder.getQuantity());
-            orderBook.removeFirst(matchingOrder.getSide());
-            if (matchingOrder instanceof IcebergOrder icebergOrder) {
-                icebergOrder.decreaseQuantity(matchingOrder.getQuantity());
-                icebergOrder.replenish();
-                if (icebergOrder.getQuantity() > 0)
-                    orderBook.enqueue(icebergOrder);
-            }
+    private static long buyerCost(Order newOrder, LinkedList<Trade> trades) {
+        long cost = newOrder.getValue();
+        for (Trade trade : trades)
+            if (trade.getSell().getBroker() != newOrder.getBroker())
+                cost += trade.getTradedValue();
+        return cost;
+    }
+
+    private static void settleCredits(Order newOrder, LinkedList<Trade> trades) {
+        if (newOrder.getSide() == Side.BUY) {
+            Broker buyer = newOrder.getBroker();
+            LinkedList<Trade> paidTrades = new LinkedList<>();
+            for (Trade trade : trades)
+                if (trade.getSell().getBroker() != buyer)
+                    paidTrades.add(trade);
+            forEachCounterparty(paidTrades, trade -> trade.getSell().getBroker(), Trade::getTradedValue,
+                    Broker::increaseCreditBy);
         } else {
-            matchingOrder.decreaseQuantity(newOrder.getQuantity());
-            newOrder.makeQuantityZero();
+            newOrder.getBroker().increaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
         }
     }
 
-    private MatchResult handleCreditAfterTrade(Order newOrder, LinkedList<Trade> trades, Trade trade) {
-        if (newOrder.getSide() == Side.BUY) {
-            if (trade.buyerHasEnoughCredit())
-                trade.decreaseBuyersCredit();
-            else {
-                rollbackTrades(newOrder, trades);
-                return MatchResult.notEnoughCredit(newOrder);
+    private static void settlePositions(Order order, LinkedList<Trade> trades) {
+        Security security = order.getSecurity();
+        int tradedQuantity = trades.stream().mapToInt(Trade::getQuantity).sum();
+        if (order.getSide() == Side.BUY) {
+            order.getShareholder().incPosition(security, tradedQuantity);
+            forEachCounterparty(trades, trade -> trade.getSell().getShareholder(), Trade::getQuantity,
+                    (shareholder, quantity) -> shareholder.decPosition(security, quantity.intValue()));
+        } else {
+            forEachCounterparty(trades, trade -> trade.getBuy().getShareholder(), Trade::getQuantity,
+                    (shareholder, quantity) -> shareholder.incPosition(security, quantity.intValue()));
+            order.getShareholder().decPosition(security, tradedQuantity);
+        }
+    }
+
+    private static <T> void forEachCounterparty(LinkedList<Trade> trades, Function<Trade, T> counterparty,
+                                                ToLongFunction<Trade> amount, BiConsumer<T, Long> apply) {
+        T current = null;
+        long total = 0;
+        for (Trade trade : trades) {
+            T next = counterparty.apply(trade);
+            if (next != current) {
+                if (current != null)
+                    apply.accept(current, total);
+                current = next;
+                total = 0;
             }
+            total += amount.applyAsLong(trade);
         }
-        trade.increaseSellersCredit();
-        trades.add(trade);
-        newOrder.getSecurity().setLastTradePrice(trades.getLast().getPrice());
-        return null;
+        if (current != null)
+            apply.accept(current, total);
+    }
+
+    private static void handlePositionsAfterTrade(Order newOrder, OrderBook orderBook, Order matchingOrder) {
+        int quantity = Math.min(newOrder.getQuantity(), matchingOrder.getQuantity());
+        newOrder.decreaseQuantity(quantity);
+        fill(orderBook, matchingOrder, quantity);
     }
 
-    private boolean shouldRollbackTradesAfterMatch(Order newOrder)
-    {
-        return (newOrder.getQuantity() > 0 && newOrder.getSide() == Side.BUY &&
-            !newOrder.getBroker().hasEnoughCredit((long)newOrder.getPrice() * newOrder.getQuantity()));
+    private static void fill(OrderBook orderBook, Order order, int quantity) {
+        if (quantity < order.getQuantity()) {
+            orderBook.decreaseQuantity(order, quantity);
+            return;
+        }
+        orderBook.removeFirst(order.getSide());
+        if (order instanceof IcebergOrder icebergOrder) {
+            orderBook.replenish(icebergOrder);
+            if (icebergOrder.getQuantity() > 0)
+                orderBook.enqueue(icebergOrder);
+        }
     }
 
     private int calculateTradePrice(Order matchingOrder, Security security) {
@@ -90,21 +143,13 @@ public class Matcher {
 
     private LinkedList<MatchResult> checkAndActivateStopLimitOrderBook(Security security){
         LinkedList<MatchResult> results = new LinkedList<>();
+        StopLimitOrderBook stopLimitOrderBook = security.getStopLimitOrderList();
+        StopLimitOrder stopLimitOrder;
 
-        for (Order inactiveOrder : security.getStopLimitOrderList().getSellQueue()){
-            StopLimitOrder stopLimitOrder = (StopLimitOrder) inactiveOrder;
-            if (!stopLimitOrder.canBeActivate(security.getLastTradePrice())) continue;
-
-            security.getStopLimitOrderList().getSellQueue().remove(inactiveOrder);
+        while ((stopLimitOrder = stopLimitOrderBook.popActivatable(Side.SELL, security.getLastTradePrice())) != null){
             activateBasedOnMode(security, results, stopLimitOrder);
         }
-        for (Order inactiveOrder : security.getStopLimitOrderList().getBuyQueue()){
-            StopLimitOrder stopLimitOrder = (StopLimitOrder) inactiveOrder;
-            if (!stopLimitOrder.canBeActivate(security.getLastTradePrice())) continue;
-
-            security.getStopLimitOrderList().getBuyQueue().remove(inactiveOrder);
-            inactiveOrder.getBroker().increaseCreditBy(
-                    (long)inactiveOrder.getPrice() * inactiveOrder.getQuantity());
+        while ((stopLimitOrder = stopLimitOrderBook.popActivatable(Side.BUY, security.getLastTradePrice())) != null){
             activateBasedOnMode(security, results, stopLimitOrder);
         }
         return results;
@@ -113,51 +158,24 @@ public class Matcher {
     private void activateBasedOnMode(Security security, LinkedList<MatchResult> results, StopLimitOrder stopLimitOrder) {
         if (security.getState() == MatcherState.CONTINUOUS){
             Order activatedOrder = OrderFactory.getInstance().activateStopLimitOrder(stopLimitOrder);
-            results.addAll(this.execute(activatedOrder));
+            long heldCredit = stopLimitOrder.getSide() == Side.BUY ? stopLimitOrder.getValue() : 0;
+            results.addAll(this.execute(activatedOrder, heldCredit));
         }else {
             Order activatedOrder = OrderFactory.getInstance().clone(stopLimitOrder);
-            if (activatedOrder.getSide() == Side.BUY)
-                activatedOrder.getBroker().decreaseCreditBy((long)activatedOrder.getPrice()
-                    * activatedOrder.getQuantity());
             results.add(MatchResult.stopLimitOrderActivated(activatedOrder, new LinkedList<>()));
             results.add(enqueueAndSetPriceOnAuctionMode(activatedOrder));
         }
     }
 
-    private void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
-        if(newOrder.getSide() == Side.BUY) {
-            newOrder.getBroker().increaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
-            trades.forEach(trade -> trade.getSell().getBroker().decreaseCreditBy(trade.getTradedValue()));
-
-            ListIterator<Trade> it = trades.listIterator(trades.size());
-            while (it.hasPrevious()) {
-                newOrder.getSecurity().getOrderBook().restoreOrder(it.previous().getSell());
-            }
-        }else{
-            ListIterator<Trade> it = trades.listIterator(trades.size());
-            while (it.hasPrevious()) {
-                newOrder.getSecurity().getOrderBook().restoreOrder(it.previous().getBuy());
-            }
-        }
-
-    }
-
     private void processMatchResult(MatchResult result, Order order) {
         if (result.outcome() == MatchingOutcome.NOT_ENOUGH_CREDIT)
             return;
 
         if (result.remainder().getQuantity() > 0) {
-            if (order.getSide() == Side.BUY) {
-                order.getBroker().decreaseCreditBy((long)order.getValue());
-            }
             order.getSecurity().getOrderBook().enqueue(result.remainder());
         }
-        if (!result.trades().isEmpty()) {
-            for (Trade trade : result.trades()) {
-                trade.getBuy().getShareholder().incPosition(trade.getSecurity(), trade.getQuantity());
-                trade.getSell().getShareholder().decPosition(trade.getSecurity(), trade.getQuantity());
-            }
-        }
+        if (!result.trades().isEmpty())
+            settlePositions(order, result.trades());
     }
 
     private MatchResult enqueueAndSetPriceOnAuctionMode(Order order){
@@ -168,15 +186,18 @@ public class Matcher {
     }
 
     public LinkedList<MatchResult> execute(Order order) {
+        return execute(order, 0);
+    }
+
+    public LinkedList<MatchResult> execute(Order order, long heldCredit) {
         LinkedList<MatchResult> results = new LinkedList<>();
         if (order.getSecurity().getState() == MatcherState.CONTINUOUS) {
-            MatchResult mainReqResult = match(order);
-            if(order instanceof MEQOrder)
-            {
-                results = processMinimumExecutionQuantityResult(order, mainReqResult);
-                if (results != null)
-                    return results;
+            if (order instanceof MEQOrder meqOrder && order.getSecurity().getOrderBook()
+                    .executableQuantity(order) < meqOrder.getMinimumExecutionQuantity()) {
+                results.add(MatchResult.minimumExecutionQuantityNotMet(order));
+                return results;
             }
+            MatchResult mainReqResult = match(order, heldCredit);
             this.processMatchResult(mainReqResult, order);
             results = checkAndActivateStopLimitOrderBook(order.getSecurity());
             results.add(mainReqResult);
@@ -186,35 +207,37 @@ public class Matcher {
         return results;
     }
 
-    private LinkedList<MatchResult> processMinimumExecutionQuantityResult(Order order, MatchResult mainReqResult) {
-        LinkedList<MatchResult> results = new LinkedList<>();
-        if (!this.isMinimumExecutionQuantityMet(mainReqResult, ((MEQOrder) order).getMinimumExecutionQuantity())) {
-            rollbackTrades(order, mainReqResult.trades());
-            results.add(MatchResult.minimumExecutionQuantityNotMet(order));
-            return results;
-        }
-        return null;
-    }
-
     public LinkedList<MatchResult> matchOrderBook(Security security){
-        OrderBook selectedorderBook = security.getSelectedOrdersList();
+        OrderBook orderBook = security.getOrderBook();
         LinkedList<MatchResult> matchResults = new LinkedList<>();
-        while (!selectedorderBook.getBuyQueue().isEmpty()){
-            Order order = selectedorderBook.getBuyQueue().getFirst();
-            selectedorderBook.removeFirst(Side.BUY);
-            MatchResult result = this.match(order);
-            processMatchResult(result, order);
-            matchResults.add(result);
+        while (orderBook.hasOrderOfType(Side.BUY) && orderBook.hasOrderOfType(Side.SELL)
+                && orderBook.matchWithFirst(orderBook.getFirst(Side.BUY)) != null) {
+            matchResults.add(uncrossFirstBuy(security, orderBook));
         }
         matchResults.addAll(checkAndActivateStopLimitOrderBook(security));
         return matchResults;
     }
 
-    private boolean isMinimumExecutionQuantityMet(MatchResult result, int minimumExecutionQuantity) {
-        return (result.remainder().getQuantity() == 0 ||
-                result.trades().stream()
-                        .mapToInt(Trade::getQuantity)
-                        .sum() >= minimumExecutionQuantity);
+    private MatchResult uncrossFirstBuy(Security security, OrderBook orderBook) {
+        Order buy = orderBook.getFirst(Side.BUY);
+        LinkedList<Trade> trades = new LinkedList<>();
+        do {
+            Order sell = orderBook.getFirst(Side.SELL);
+            Trade trade = new Trade(security, calculateTradePrice(sell, security),
+                    Math.min(buy.getQuantity(), sell.getQuantity()), buy, sell);
+            trades.add(trade);
+            fill(orderBook, sell, trade.getQuantity());
+            fill(orderBook, buy, trade.getQuantity());
+        } while (orderBook.hasOrderOfType(Side.SELL) && orderBook.hasOrderOfType(Side.BUY)
+                && orderBook.getFirst(Side.BUY) == buy && buy.matches(orderBook.getFirst(Side.SELL)));
+
+        long reservedValue = trades.stream().mapToLong(trade -> (long) buy.getPrice() * trade.getQuantity()).sum();
+        buy.getBroker().releaseCredit(reservedValue - trades.stream().mapToLong(Trade::getTradedValue).sum());
+        forEachCounterparty(trades, trade -> trade.getSell().getBroker(), Trade::getTradedValue,
+                Broker::increaseCreditBy);
+        settlePositions(buy, trades);
+        security.setLastTradePrice(trades.getLast().getPrice());
+        return MatchResult.executed(buy, trades);
     }
 
 }
@@ -68,7 +68,6 @@ public class MatcherHandler {
 
     
     private LinkedList<MatchResult> match(Security security) {
-      security.FillSelectedOrderList();
       return matcher.matchOrderBook(security);
     }
 
@@ -5,14 +5,11 @@ import ir.ut.se.tinyme.messaging.request.EnterOrderRq;
 
 public class OrderFactory {
 
-    private static OrderFactory instance;
+    private static final OrderFactory instance = new OrderFactory();
 
     private OrderFactory() {}
 
     public static OrderFactory getInstance() {
-        if (instance == null) {
-            instance = new OrderFactory();
-        }
         return instance;
     }
 
@@ -5,8 +5,11 @@ import ir.ut.se.tinyme.messaging.event.*;
 import ir.ut.se.tinyme.messaging.exception.InvalidRequestException;
 import ir.ut.se.tinyme.messaging.EventPublisher;
 import ir.ut.se.tinyme.messaging.TradeDTO;
+import ir.ut.se.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.BatchOperation;
 import ir.ut.se.tinyme.messaging.request.DeleteOrderRq;
 import ir.ut.se.tinyme.messaging.request.EnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.MassCancelRq;
 import ir.ut.se.tinyme.messaging.request.MatcherState;
 import ir.ut.se.tinyme.messaging.request.OrderEntryType;
 import ir.ut.se.tinyme.repository.BrokerRepository;
@@ -37,6 +40,10 @@ public class OrderHandler {
     }
 
     public void enterOrderPublishEvent(EnterOrderRq enterOrderRq, LinkedList<MatchResult> results) {
+        eventPublisher.publishMany(enterOrderEvents(enterOrderRq, results));
+    }
+
+    private List<Event> enterOrderEvents(EnterOrderRq enterOrderRq, LinkedList<MatchResult> results) {
         List<Event> events = new ArrayList<Event>();
 
         if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
@@ -50,49 +57,112 @@ public class OrderHandler {
           events.addAll(matchResult.events());
         }
 
-        eventPublisher.publishMany(events);
+        return events;
     }
 
     public void handleEnterOrder(EnterOrderRq enterOrderRq) {
         try {
-            validateEnterOrderRq(enterOrderRq);
-
-            Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
-            Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
-            Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
-
-            LinkedList<MatchResult> results;
-            if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
-                results = security.newOrder(enterOrderRq, broker, shareholder, matcher);
-            else
-                results = security.updateOrder(enterOrderRq, matcher);
-
-            enterOrderPublishEvent(enterOrderRq, results);
+            enterOrderPublishEvent(enterOrderRq, enterOrder(enterOrderRq));
         } catch (InvalidRequestException ex) {
             eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
         }
     }
 
+    private LinkedList<MatchResult> enterOrder(EnterOrderRq enterOrderRq) throws InvalidRequestException {
+        validateEnterOrderRq(enterOrderRq);
+
+        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
+        Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
+        Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
+
+        if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
+            return security.newOrder(enterOrderRq, broker, shareholder, matcher);
+        return security.updateOrder(enterOrderRq, matcher);
+    }
+
     public void deleteOrderPublishEvent(MatchResult matchResult, DeleteOrderRq deleteOrderRq){
+        eventPublisher.publishMany(deleteOrderEvents(matchResult, deleteOrderRq));
+    }
+
+    private List<Event> deleteOrderEvents(MatchResult matchResult, DeleteOrderRq deleteOrderRq) {
         List<Event> events = new ArrayList<Event>();
         if (matchResult != null) {
           events.addAll(matchResult.events());
         }
         events.add(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
-        eventPublisher.publishMany(events);
+        return events;
     }
 
     public void handleDeleteOrder(DeleteOrderRq deleteOrderRq) {
         try {
-            validateDeleteOrderRq(deleteOrderRq);
-            Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
-            MatchResult result = security.deleteOrder(deleteOrderRq);
-            deleteOrderPublishEvent(result, deleteOrderRq);
+            deleteOrderPublishEvent(deleteOrder(deleteOrderRq), deleteOrderRq);
         } catch (InvalidRequestException ex) {
             eventPublisher.publish(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
         }
     }
 
+    private MatchResult deleteOrder(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
+        validateDeleteOrderRq(deleteOrderRq);
+        Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
+        return security.deleteOrder(deleteOrderRq);
+    }
+
+    public void handleBatchEnterOrder(BatchEnterOrderRq batchEnterOrderRq) {
+        if (batchEnterOrderRq.getOperations() == null) {
+            eventPublisher.publish(new OrderRejectedEvent(batchEnterOrderRq.getRequestId(), 0,
+                    List.of(Message.INVALID_BATCH_OPERATION)));
+            return;
+        }
+        List<Event> events = new ArrayList<>();
+        for (BatchOperation operation : batchEnterOrderRq.getOperations()) {
+            EnterOrderRq enterOrderRq = operation == null ? null : operation.getEnterOrderRq();
+            DeleteOrderRq deleteOrderRq = operation == null ? null : operation.getDeleteOrderRq();
+            if ((enterOrderRq == null) == (deleteOrderRq == null)) {
+                events.add(new OrderRejectedEvent(batchEnterOrderRq.getRequestId(), 0,
+                        List.of(Message.INVALID_BATCH_OPERATION)));
+            } else if (enterOrderRq != null) {
+                try {
+                    events.addAll(enterOrderEvents(enterOrderRq, enterOrder(enterOrderRq)));
+                } catch (InvalidRequestException ex) {
+                    events.add(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
+                }
+            } else {
+                try {
+                    events.addAll(deleteOrderEvents(deleteOrder(deleteOrderRq), deleteOrderRq));
+                } catch (InvalidRequestException ex) {
+                    events.add(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
+                }
+            }
+        }
+        eventPublisher.publishMany(events);
+    }
+
+    public void handleMassCancel(MassCancelRq massCancelRq) {
+        try {
+            validateMassCancelRq(massCancelRq);
+            Broker broker = massCancelRq.getBrokerId() == 0 ? null
+                    : brokerRepository.findBrokerById(massCancelRq.getBrokerId());
+            Shareholder shareholder = massCancelRq.getShareholderId() == 0 ? null
+                    : shareholderRepository.findShareholderById(massCancelRq.getShareholderId());
+            Iterable<? extends Security> securities = massCancelRq.getSecurityIsin() == null
+                    ? securityRepository.allSecurities()
+                    : List.of(securityRepository.findSecurityByIsin(massCancelRq.getSecurityIsin()));
+
+            List<Event> events = new ArrayList<>();
+            List<Long> orderIds = new ArrayList<>();
+            for (Security security : securities) {
+                List<Order> cancelled = security.cancelOrders(broker, shareholder, massCancelRq.getSide());
+                cancelled.forEach(order -> orderIds.add(order.getOrderId()));
+                if (!cancelled.isEmpty() && security.getState() == MatcherState.AUCTION)
+                    events.addAll(security.recalculateOpeningPrice().events());
+            }
+            events.add(new OrdersCancelledEvent(massCancelRq.getRequestId(), orderIds));
+            eventPublisher.publishMany(events);
+        } catch (InvalidRequestException ex) {
+            eventPublisher.publish(new OrderRejectedEvent(massCancelRq.getRequestId(), 0, ex.getReasons()));
+        }
+    }
+
     private void validateEnterOrderRq(EnterOrderRq enterOrderRq) throws InvalidRequestException {
         List<String> errors = new LinkedList<>();
         checkTheBasicOrderConditions(enterOrderRq, errors);
@@ -176,4 +246,18 @@ public class OrderHandler {
         if (!errors.isEmpty())
             throw new InvalidRequestException(errors);
     }
+
+    private void validateMassCancelRq(MassCancelRq massCancelRq) throws InvalidRequestException {
+        List<String> errors = new LinkedList<>();
+        if (massCancelRq.getSecurityIsin() == null && massCancelRq.getBrokerId() == 0 && massCancelRq.getShareholderId() == 0)
+            errors.add(Message.MASS_CANCEL_WITHOUT_CRITERIA);
+        if (massCancelRq.getSecurityIsin() != null && securityRepository.findSecurityByIsin(massCancelRq.getSecurityIsin()) == null)
+            errors.add(Message.UNKNOWN_SECURITY_ISIN);
+        if (massCancelRq.getBrokerId() != 0 && brokerRepository.findBrokerById(massCancelRq.getBrokerId()) == null)
+            errors.add(Message.UNKNOWN_BROKER_ID);
+        if (massCancelRq.getShareholderId() != 0 && shareholderRepository.findShareholderById(massCancelRq.getShareholderId()) == null)
+            errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
+        if (!errors.isEmpty())
+            throw new InvalidRequestException(errors);
+    }
 }
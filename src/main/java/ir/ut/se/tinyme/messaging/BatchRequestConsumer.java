@@ -0,0 +1,132 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.config.Modules;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class BatchRequestConsumer implements SmartLifecycle {
+    private static final long RECEIVE_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ConnectionFactory connectionFactory;
+    private final MessageConverter converter;
+    private final RequestDispatcher dispatcher;
+    private final ShardedRequestExecutor executor;
+    private final EventPublisher eventPublisher;
+    private final String requestQueue;
+    private final int batchSize;
+    private final boolean batched;
+    private Thread consumerThread;
+    private volatile boolean running;
+
+    public BatchRequestConsumer(ConnectionFactory connectionFactory, MessageConverter converter,
+                                RequestDispatcher dispatcher, ShardedRequestExecutor executor,
+                                EventPublisher eventPublisher, @Value("${requestQueue}") String requestQueue,
+                                @Value("${" + Modules.BATCHED_CONSUMPTION + ":false}") boolean batched,
+                                @Value("${requestBatchSize:64}") int batchSize) {
+        this.connectionFactory = connectionFactory;
+        this.converter = converter;
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+        this.eventPublisher = eventPublisher;
+        this.requestQueue = requestQueue;
+        this.batchSize = batchSize;
+        this.batched = batched;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!batched || running)
+            return;
+        running = true;
+        consumerThread = new Thread(this::consume, "request-consumer");
+        consumerThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running)
+            return;
+        running = false;
+        try {
+            consumerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void consume() {
+        while (running) {
+            try (Connection connection = connectionFactory.createConnection();
+                 Session session = connection.createSession(true, Session.SESSION_TRANSACTED)) {
+                MessageConsumer consumer = session.createConsumer(session.createQueue(requestQueue));
+                connection.start();
+                while (running)
+                    consumeBatch(session, consumer);
+            } catch (JMSException e) {
+                log.log(Level.SEVERE, "Request consumer lost its connection", e);
+                if (!pause())
+                    return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    int consumeBatch(Session session, MessageConsumer consumer) throws JMSException, InterruptedException {
+        Message message = consumer.receive(RECEIVE_TIMEOUT_MS);
+        int count = 0;
+        while (message != null) {
+            handle(message);
+            count++;
+            message = count < batchSize ? consumer.receiveNoWait() : null;
+        }
+        if (count == 0)
+            return 0;
+        executor.awaitIdle();
+        boolean published = eventPublisher.awaitPublished();
+        session.commit();
+        if (!published) {
+            log.severe("Stopping request consumption because events of applied requests were not published");
+            running = false;
+        }
+        return count;
+    }
+
+    private void handle(Message message) {
+        try {
+            dispatcher.receive(converter.fromMessage(message));
+        } catch (JMSException | RuntimeException e) {
+            log.log(Level.SEVERE, "Failed to handle request", e);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
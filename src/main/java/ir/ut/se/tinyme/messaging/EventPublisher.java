@@ -1,40 +1,242 @@
 package ir.ut.se.tinyme.messaging;
 
+import ir.ut.se.tinyme.config.Modules;
+import ir.ut.se.tinyme.messaging.codec.WireFormatMessageConverter;
 import ir.ut.se.tinyme.messaging.event.Event;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.stereotype.Component;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.jms.MessageProducer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 @Component
 public class EventPublisher {
+    private static final int FLUSH_ATTEMPTS = 3;
+    private static final long FLUSH_RETRY_DELAY_MS = 100;
+
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final JmsTemplate jmsTemplate;
-    @Value("${responseQueue}")
-    private String responseQueue;
+    private final JmsTemplate batchTemplate;
+    private final EventSerializer serializer;
+    private final String responseQueue;
+    private final MessageConverter converter;
+    private final boolean binary;
+    private final EventRing ring;
+    private final Thread publisherThread;
+    private final int batchSize;
+    private final List<Object> batch = new ArrayList<>();
+    private final List<String> batchDestinations = new ArrayList<>();
+    private final OpeningPriceConflator conflator;
+    private final AtomicBoolean publishFailed = new AtomicBoolean();
 
-    public EventPublisher(JmsTemplate jmsTemplate) {
+    public EventPublisher(JmsTemplate jmsTemplate, EventSerializer serializer, @Value("${responseQueue}") String responseQueue,
+                          @Value("${" + Modules.PIPELINED_PUBLISHING + ":false}") boolean pipelined,
+                          @Value("${" + Modules.BINARY_RESPONSES + ":false}") boolean binary,
+                          @Value("${eventRingSize:1024}") int ringSize,
+                          @Value("${eventBatchSize:64}") int batchSize,
+                          @Value("${" + Modules.CONFLATED_OPENING_PRICES + ":false}") boolean conflated,
+                          @Value("${openingPriceConflationMillis:0}") long conflationMillis) {
         this.jmsTemplate = jmsTemplate;
+        this.serializer = serializer;
+        this.responseQueue = responseQueue;
+        this.batchSize = batchSize;
+        this.binary = binary;
+        this.converter = binary
+                ? new WireFormatMessageConverter(jmsTemplate.getMessageConverter(), true)
+                : jmsTemplate.getMessageConverter();
+        if (pipelined) {
+            batchTemplate = transactedCopyOf(jmsTemplate);
+            ring = new EventRing(ringSize);
+            publisherThread = new Thread(this::drainRing, "event-publisher");
+            publisherThread.start();
+        } else {
+            batchTemplate = null;
+            ring = null;
+            publisherThread = null;
+        }
+        conflator = conflated ? new OpeningPriceConflator(conflationMillis, this::dispatchMany) : null;
+    }
+
+    private static JmsTemplate transactedCopyOf(JmsTemplate jmsTemplate) {
+        JmsTemplate transacted = new JmsTemplate();
+        transacted.setConnectionFactory(jmsTemplate.getConnectionFactory());
+        transacted.setDestinationResolver(jmsTemplate.getDestinationResolver());
+        transacted.setPubSubDomain(jmsTemplate.isPubSubDomain());
+        transacted.setSessionTransacted(true);
+        return transacted;
     }
 
     public void publish(Event event) {
-        log.info("Published : " + event);
-        jmsTemplate.convertAndSend(responseQueue, event);
+        if (conflator == null)
+            dispatch(event);
+        else
+            conflator.offer(List.of(event), events -> dispatch(events.get(0)));
     }
 
     public void publishMany(List<Event> events) {
-        ObjectMapper objectMapper = new ObjectMapper();
+        if (conflator == null)
+            dispatchMany(events);
+        else
+            conflator.offer(events, this::dispatchMany);
+    }
+
+    public void publishTo(String destination, Event event) {
+        if (!enqueue(destination, event, null))
+            send(destination, event);
+    }
+
+    private void dispatch(Event event) {
+        if (!enqueue(null, event, null))
+            send(responseQueue, event);
+    }
+
+    private void dispatchMany(List<Event> events) {
+        if (!enqueue(null, null, events))
+            sendMany(events);
+    }
+
+    private boolean enqueue(String destination, Event event, List<Event> events) {
+        if (ring == null)
+            return false;
+        try {
+            return ring.put(destination, event, events);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drainRing() {
         try {
-          String eventsJson = objectMapper.writeValueAsString(events);
-          log.info("Published : " + eventsJson);
-          jmsTemplate.convertAndSend(responseQueue, eventsJson);
+            boolean open = true;
+            while (open)
+                open = ring.consume(this::sendSlot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendSlot(EventRing.Slot slot, boolean endOfBatch) {
+        String destination = slot.destination() == null ? responseQueue : slot.destination();
+        if (slot.event() != null) {
+            batch.add(slot.event());
+            batchDestinations.add(destination);
+        } else {
+            try {
+                batch.add(encode(slot.events()));
+                batchDestinations.add(destination);
+            } catch (JsonProcessingException e) {
+                publishFailed.set(true);
+                log.log(Level.SEVERE, "Failed to publish events", e);
+            }
+        }
+        if (endOfBatch || batch.size() >= batchSize)
+            flush();
+    }
+
+    private void flush() {
+        if (batch.isEmpty())
+            return;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    sendBatch();
+                    batch.forEach(payload -> log.info("Published : " + payload));
+                    return;
+                } catch (RuntimeException e) {
+                    if (attempt == FLUSH_ATTEMPTS || !pause()) {
+                        publishFailed.set(true);
+                        log.log(Level.SEVERE, "Failed to publish events", e);
+                        return;
+                    }
+                    log.log(Level.WARNING, "Retrying to publish events", e);
+                }
+            }
+        } finally {
+            batch.clear();
+            batchDestinations.clear();
+        }
+    }
+
+    private void sendBatch() {
+        batchTemplate.execute(session -> {
+            Map<String, MessageProducer> producers = new HashMap<>();
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    String destination = batchDestinations.get(i);
+                    MessageProducer producer = producers.get(destination);
+                    if (producer == null) {
+                        producer = session.createProducer(batchTemplate.getDestinationResolver()
+                                .resolveDestinationName(session, destination, batchTemplate.isPubSubDomain()));
+                        producers.put(destination, producer);
+                    }
+                    producer.send(converter.toMessage(batch.get(i), session));
+                }
+                session.commit();
+            } finally {
+                for (MessageProducer producer : producers.values())
+                    producer.close();
+            }
+            return null;
+        }, true);
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(FLUSH_RETRY_DELAY_MS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void send(String destination, Object payload) {
+        log.info("Published : " + payload);
+        try {
+            jmsTemplate.send(destination, session -> converter.toMessage(payload, session));
+        } catch (RuntimeException e) {
+            publishFailed.set(true);
+            throw e;
+        }
+    }
+
+    private Object encode(List<Event> events) throws JsonProcessingException {
+        return binary ? events : serializer.writeAll(events);
+    }
+
+    private void sendMany(List<Event> events) {
+        try {
+          send(responseQueue, encode(events));
         } catch (JsonProcessingException e) {
+          publishFailed.set(true);
           log.log(Level.SEVERE, "Failed to publish events", e);
         }
     }
+
+    public boolean awaitPublished() throws InterruptedException {
+        if (ring != null)
+            ring.awaitDrained();
+        return !publishFailed.getAndSet(false);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (conflator != null)
+            conflator.close();
+        if (ring == null)
+            return;
+        ring.close();
+        publisherThread.join();
+    }
 }
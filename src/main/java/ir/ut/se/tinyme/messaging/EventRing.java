@@ -0,0 +1,133 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.messaging.event.Event;
+
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class EventRing {
+    public static final class Slot {
+        private String destination;
+        private Event event;
+        private List<Event> events;
+
+        public String destination() {
+            return destination;
+        }
+
+        public Event event() {
+            return event;
+        }
+
+        public List<Event> events() {
+            return events;
+        }
+
+        private void clear() {
+            destination = null;
+            event = null;
+            events = null;
+        }
+    }
+
+    public interface SlotHandler {
+        void onSlot(Slot slot, boolean endOfBatch);
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private long head;
+    private long tail;
+    private boolean closed;
+
+    public EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++)
+            slots[i] = new Slot();
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public boolean put(Event event, List<Event> events) throws InterruptedException {
+        return put(null, event, events);
+    }
+
+    public boolean put(String destination, Event event, List<Event> events) throws InterruptedException {
+        lock.lock();
+        try {
+            while (tail - head == slots.length && !closed)
+                notFull.await();
+            if (closed)
+                return false;
+            Slot slot = slots[(int) (tail & mask)];
+            slot.destination = destination;
+            slot.event = event;
+            slot.events = events;
+            tail++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean consume(SlotHandler handler) throws InterruptedException {
+        long from, to;
+        lock.lock();
+        try {
+            while (head == tail && !closed)
+                notEmpty.await();
+            if (head == tail)
+                return false;
+            from = head;
+            to = tail;
+        } finally {
+            lock.unlock();
+        }
+        for (long sequence = from; sequence < to; sequence++) {
+            Slot slot = slots[(int) (sequence & mask)];
+            try {
+                handler.onSlot(slot, sequence == to - 1);
+            } finally {
+                slot.clear();
+            }
+        }
+        lock.lock();
+        try {
+            head = to;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    public void awaitDrained() throws InterruptedException {
+        lock.lock();
+        try {
+            while (head != tail && !closed)
+                notFull.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
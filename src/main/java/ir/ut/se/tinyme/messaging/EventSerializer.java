@@ -0,0 +1,54 @@
+package ir.ut.se.tinyme.messaging;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ir.ut.se.tinyme.messaging.event.*;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class EventSerializer {
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringWriter> buffers = ThreadLocal.withInitial(StringWriter::new);
+
+    public EventSerializer() {
+        for (Class<?> type : List.of(OrderAcceptedEvent.class, OrderActivatedEvent.class, OrderDeletedEvent.class,
+                OrderExecutedEvent.class, OrderRejectedEvent.class, OrderUpdatedEvent.class, TradeEvent.class,
+                OpeningPriceEvent.class, SecurityStateChangedEvent.class, OrdersCancelledEvent.class,
+                MarketDataDeltaEvent.class, MarketDataSnapshotEvent.class))
+            writerFor(type);
+    }
+
+    public String writeAll(List<? extends Event> events) throws JsonProcessingException {
+        StringWriter buffer = buffers.get();
+        buffer.getBuffer().setLength(0);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartArray();
+            for (Event event : events)
+                writerFor(event.getClass()).writeValue(generator, event);
+            generator.writeEndArray();
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        String json = buffer.toString();
+        if (buffer.getBuffer().capacity() > MAX_RETAINED_BUFFER)
+            buffers.remove();
+        return json;
+    }
+
+    private ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, mapper::writerFor);
+    }
+}
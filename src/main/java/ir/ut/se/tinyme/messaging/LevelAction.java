@@ -0,0 +1,7 @@
+package ir.ut.se.tinyme.messaging;
+
+public enum LevelAction {
+    ADD,
+    CHANGE,
+    DELETE
+}
@@ -0,0 +1,11 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.domain.entity.Side;
+
+public record LevelDTO(
+    Side side,
+    LevelAction action,
+    int price,
+    long quantity,
+    int orderCount) {
+}
@@ -0,0 +1,187 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.config.Modules;
+import ir.ut.se.tinyme.domain.entity.DepthLevel;
+import ir.ut.se.tinyme.domain.entity.LevelUpdate;
+import ir.ut.se.tinyme.domain.entity.OrderBook;
+import ir.ut.se.tinyme.domain.entity.Security;
+import ir.ut.se.tinyme.domain.entity.Side;
+import ir.ut.se.tinyme.messaging.event.MarketDataDeltaEvent;
+import ir.ut.se.tinyme.messaging.event.MarketDataSnapshotEvent;
+import ir.ut.se.tinyme.repository.SecurityRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class MarketDataPublisher implements SmartLifecycle {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final EventPublisher eventPublisher;
+    private final SecurityRepository securityRepository;
+    private final ShardedRequestExecutor executor;
+    private final String marketDataQueue;
+    private final boolean enabled;
+    private final long snapshotMillis;
+    private final ConcurrentHashMap<String, BookState> books = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private long snapshotAt = System.currentTimeMillis();
+
+    public MarketDataPublisher(EventPublisher eventPublisher, SecurityRepository securityRepository,
+                               ShardedRequestExecutor executor,
+                               @Value("${marketDataQueue:MD}") String marketDataQueue,
+                               @Value("${" + Modules.MARKET_DATA_FEED + ":false}") boolean enabled,
+                               @Value("${marketDataSnapshotMillis:5000}") long snapshotMillis) {
+        this.eventPublisher = eventPublisher;
+        this.securityRepository = securityRepository;
+        this.executor = executor;
+        this.marketDataQueue = marketDataQueue;
+        this.enabled = enabled;
+        this.snapshotMillis = snapshotMillis;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || snapshotMillis <= 0 || !executor.isSharded() || scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "market-data-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::scheduleSnapshots, 0, snapshotMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (scheduler == null)
+            return;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    private void scheduleSnapshots() {
+        for (Security security : securityRepository.allSecurities()) {
+            try {
+                executor.execute(security.getIsin(), () -> publishSnapshot(security));
+            } catch (RuntimeException e) {
+                log.log(Level.SEVERE, "Failed to publish a snapshot of " + security.getIsin(), e);
+            }
+        }
+    }
+
+    public void publishChanges(String securityIsin) {
+        if (!enabled)
+            return;
+        Security security = securityRepository.findSecurityByIsin(securityIsin);
+        if (security != null)
+            publishChanges(security);
+        publishDueSnapshots();
+    }
+
+    public void publishAllChanges() {
+        if (!enabled)
+            return;
+        for (Security security : securityRepository.allSecurities())
+            publishChanges(security);
+        publishDueSnapshots();
+    }
+
+    private void publishDueSnapshots() {
+        if (executor.isSharded() || snapshotMillis <= 0 || System.currentTimeMillis() - snapshotAt < snapshotMillis)
+            return;
+        for (Security security : securityRepository.allSecurities())
+            publishSnapshot(security);
+        snapshotAt = System.currentTimeMillis();
+    }
+
+    private void publishChanges(Security security) {
+        BookState book = books.get(security.getIsin());
+        if (book == null)
+            publishSnapshot(security);
+        else
+            publishDeltas(security, book);
+    }
+
+    private void publishSnapshot(Security security) {
+        OrderBook orderBook = security.getOrderBook();
+        BookState book = books.get(security.getIsin());
+        if (book == null) {
+            orderBook.trackChanges();
+            book = new BookState();
+            books.put(security.getIsin(), book);
+        } else {
+            publishDeltas(security, book);
+        }
+        List<LevelDTO> levels = new ArrayList<>();
+        book.reset();
+        for (Side side : Side.values()) {
+            for (DepthLevel depthLevel : orderBook.getDepth(side, Integer.MAX_VALUE)) {
+                LevelDTO level = new LevelDTO(side, LevelAction.ADD, depthLevel.price(), depthLevel.quantity(), depthLevel.orderCount());
+                book.levels(side).put(level.price(), level);
+                levels.add(level);
+            }
+        }
+        eventPublisher.publishTo(marketDataQueue, new MarketDataSnapshotEvent(security.getIsin(), book.sequence, levels));
+    }
+
+    private void publishDeltas(Security security, BookState book) {
+        List<LevelDTO> deltas = book.apply(security.getOrderBook().drainChanges());
+        if (deltas.isEmpty())
+            return;
+        book.sequence++;
+        eventPublisher.publishTo(marketDataQueue, new MarketDataDeltaEvent(security.getIsin(), book.sequence, deltas));
+    }
+
+    private static class BookState {
+        private final Map<Integer, LevelDTO> buys = new HashMap<>();
+        private final Map<Integer, LevelDTO> sells = new HashMap<>();
+        private long sequence;
+
+        private Map<Integer, LevelDTO> levels(Side side) {
+            return side == Side.BUY ? buys : sells;
+        }
+
+        private void reset() {
+            buys.clear();
+            sells.clear();
+        }
+
+        private List<LevelDTO> apply(List<LevelUpdate> updates) {
+            List<LevelDTO> deltas = new ArrayList<>();
+            for (LevelUpdate update : updates) {
+                Map<Integer, LevelDTO> levels = levels(update.side());
+                LevelDTO last = levels.get(update.price());
+                if (update.orderCount() == 0) {
+                    if (last != null) {
+                        levels.remove(update.price());
+                        deltas.add(new LevelDTO(update.side(), LevelAction.DELETE, update.price(), 0, 0));
+                    }
+                    continue;
+                }
+                if (last != null && last.quantity() == update.quantity() && last.orderCount() == update.orderCount())
+                    continue;
+                LevelDTO level = new LevelDTO(update.side(), last == null ? LevelAction.ADD : LevelAction.CHANGE,
+                        update.price(), update.quantity(), update.orderCount());
+                levels.put(update.price(), level);
+                deltas.add(level);
+            }
+            return deltas;
+        }
+    }
+}
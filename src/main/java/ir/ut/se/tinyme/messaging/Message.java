@@ -24,6 +24,8 @@ public class Message {
     public static final String CAN_NOT_INITIALIZE_MEQ_OR_STOP_LIMIT_ORDERS_ON_AUCTION_MODE = "can not initialize MEQ or stop limit orders on Auction mode";
     public static final String CANT_UPDATE_STOP_LIMIT_ORDER_ON_AUCTION_MODE = "cannot update stop limit order on auction mode";
     public static final String MEQ_ORDERS_CANT_BE_PEAK_ORDERS = "MEQ orders cannot be Peak orders";
+    public static final String MASS_CANCEL_WITHOUT_CRITERIA = "Mass cancel must name a security, broker or shareholder";
+    public static final String INVALID_BATCH_OPERATION = "Batch operation must carry exactly one order request";
 
 //    public static final String COULD_NOT_UPDATE_STOP_ORDER_LIMIT_ORDER_THAT_IS_NOT_IN_ACTIVE = "Could not update stop order limit that is not inactive";
 }
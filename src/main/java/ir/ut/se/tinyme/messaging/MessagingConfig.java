@@ -1,11 +1,22 @@
 package ir.ut.se.tinyme.messaging;
 
+import ir.ut.se.tinyme.config.Modules;
+import ir.ut.se.tinyme.messaging.codec.WireFormatMessageConverter;
+import ir.ut.se.tinyme.messaging.request.DeleteOrderRq;
+import ir.ut.se.tinyme.messaging.request.EnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.MatchingStateRq;
+import jakarta.jms.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
 
+import java.util.Map;
+
 @Configuration
 public class MessagingConfig {
     @Bean
@@ -13,6 +24,20 @@ public class MessagingConfig {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         converter.setTargetType(MessageType.TEXT);
         converter.setTypeIdPropertyName("_type");
-        return converter;
+        converter.setTypeIdMappings(Map.of(
+                "ir.ramtung.tinyme.messaging.request.EnterOrderRq", EnterOrderRq.class,
+                "ir.ramtung.tinyme.messaging.request.MatchingStateRq", MatchingStateRq.class,
+                "ir.ramtung.tinyme.messaging.request.DeleteOrderRq", DeleteOrderRq.class));
+        return new WireFormatMessageConverter(converter, false);
+    }
+
+    @Bean
+    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${" + Modules.BATCHED_CONSUMPTION + ":false}") boolean batched) {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAutoStartup(!batched);
+        return factory;
     }
 }
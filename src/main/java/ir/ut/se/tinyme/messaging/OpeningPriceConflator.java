@@ -0,0 +1,84 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.messaging.event.Event;
+import ir.ut.se.tinyme.messaging.event.OpeningPriceEvent;
+import ir.ut.se.tinyme.messaging.event.SecurityStateChangedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class OpeningPriceConflator {
+    private final HashMap<String, OpeningPriceEvent> published = new HashMap<>();
+    private final LinkedHashMap<String, OpeningPriceEvent> pending = new LinkedHashMap<>();
+    private final Consumer<List<Event>> sink;
+    private final ScheduledExecutorService scheduler;
+
+    public OpeningPriceConflator(long intervalMillis, Consumer<List<Event>> sink) {
+        this.sink = sink;
+        if (intervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "opening-price-conflator");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public void offer(List<Event> events, Consumer<List<Event>> downstream) {
+        List<Event> passed = new ArrayList<>(events.size());
+        synchronized (this) {
+            for (Event event : events) {
+                if (event instanceof OpeningPriceEvent openingPrice) {
+                    if (scheduler != null)
+                        pending.put(openingPrice.getSecurityIsin(), openingPrice);
+                    else if (changed(openingPrice))
+                        passed.add(openingPrice);
+                    continue;
+                }
+                if (event instanceof SecurityStateChangedEvent stateChanged) {
+                    pending.remove(stateChanged.getSecurityIsin());
+                    published.remove(stateChanged.getSecurityIsin());
+                }
+                passed.add(event);
+            }
+        }
+        if (!passed.isEmpty())
+            downstream.accept(passed);
+    }
+
+    private boolean changed(OpeningPriceEvent openingPrice) {
+        OpeningPriceEvent last = published.get(openingPrice.getSecurityIsin());
+        if (last != null && last.getOpeningPrice() == openingPrice.getOpeningPrice()
+                && last.getTradableQuantity() == openingPrice.getTradableQuantity())
+            return false;
+        published.put(openingPrice.getSecurityIsin(), openingPrice);
+        return true;
+    }
+
+    public void flush() {
+        List<Event> events = new ArrayList<>();
+        synchronized (this) {
+            for (OpeningPriceEvent openingPrice : pending.values())
+                if (changed(openingPrice))
+                    events.add(openingPrice);
+            pending.clear();
+        }
+        if (!events.isEmpty())
+            sink.accept(events);
+    }
+
+    public void close() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+        flush();
+    }
+}
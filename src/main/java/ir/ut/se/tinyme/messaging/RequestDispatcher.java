@@ -1,13 +1,22 @@
 package ir.ut.se.tinyme.messaging;
 
 import ir.ut.se.tinyme.domain.service.MatcherHandler;
+import ir.ut.se.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.BatchOperation;
 import ir.ut.se.tinyme.messaging.request.DeleteOrderRq;
 import ir.ut.se.tinyme.messaging.request.EnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.MassCancelRq;
 import ir.ut.se.tinyme.domain.service.OrderHandler;
 import ir.ut.se.tinyme.messaging.request.MatchingStateRq;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 @Component
@@ -15,27 +24,87 @@ public class RequestDispatcher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final OrderHandler orderHandler;
     private final MatcherHandler matcherHandler;
+    private final ShardedRequestExecutor executor;
+    private final MarketDataPublisher marketDataPublisher;
+    private final Map<Class<?>, Consumer<Object>> handlers = new HashMap<>();
 
-    public RequestDispatcher(OrderHandler orderHandler, MatcherHandler matcherHandler) {
+    public RequestDispatcher(OrderHandler orderHandler, MatcherHandler matcherHandler, ShardedRequestExecutor executor,
+                             MarketDataPublisher marketDataPublisher) {
         this.orderHandler = orderHandler;
         this.matcherHandler = matcherHandler;
+        this.executor = executor;
+        this.marketDataPublisher = marketDataPublisher;
+        register(EnterOrderRq.class, this::receiveEnterOrderRq);
+        register(MatchingStateRq.class, this::receiveChangeMatchingStateRq);
+        register(DeleteOrderRq.class, this::receiveDeleteOrderRq);
+        register(BatchEnterOrderRq.class, this::receiveBatchEnterOrderRq);
+        register(MassCancelRq.class, this::receiveMassCancelRq);
     }
 
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
-    public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
-        log.info("Received message: " + enterOrderRq);
-        orderHandler.handleEnterOrder(enterOrderRq);
+    private <T> void register(Class<T> type, Consumer<T> handler) {
+        handlers.put(type, request -> handler.accept(type.cast(request)));
     }
 
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.MatchingStateRq'")
-    public void receiveChangeMatchingStateRq(MatchingStateRq matchingStateRq) {
-        log.info("Received message: " + matchingStateRq);
-        matcherHandler.handleMatchStateRq(matchingStateRq);
+    @JmsListener(destination = "${requestQueue}")
+    public void receive(Object request) {
+        log.info("Received message: " + request);
+        Consumer<Object> handler = handlers.get(request.getClass());
+        if (handler == null) {
+            log.warning("Ignoring unsupported request: " + request.getClass().getName());
+            return;
+        }
+        handler.accept(request);
     }
 
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
-    public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
-        log.info("Received message: " + deleteOrderRq);
-        orderHandler.handleDeleteOrder(deleteOrderRq);
+    private void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
+        executor.execute(enterOrderRq.getSecurityIsin(), () -> {
+            orderHandler.handleEnterOrder(enterOrderRq);
+            marketDataPublisher.publishChanges(enterOrderRq.getSecurityIsin());
+        });
+    }
+
+    private void receiveChangeMatchingStateRq(MatchingStateRq matchingStateRq) {
+        executor.execute(matchingStateRq.getSecurityIsin(), () -> {
+            matcherHandler.handleMatchStateRq(matchingStateRq);
+            marketDataPublisher.publishChanges(matchingStateRq.getSecurityIsin());
+        });
+    }
+
+    private void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
+        executor.execute(deleteOrderRq.getSecurityIsin(), () -> {
+            orderHandler.handleDeleteOrder(deleteOrderRq);
+            marketDataPublisher.publishChanges(deleteOrderRq.getSecurityIsin());
+        });
+    }
+
+    private void receiveBatchEnterOrderRq(BatchEnterOrderRq batchEnterOrderRq) {
+        Set<String> securityIsins = new LinkedHashSet<>();
+        List<BatchOperation> operations = batchEnterOrderRq.getOperations() == null
+                ? List.of() : batchEnterOrderRq.getOperations();
+        for (BatchOperation operation : operations) {
+            if (operation == null)
+                continue;
+            if (operation.getEnterOrderRq() != null)
+                securityIsins.add(operation.getEnterOrderRq().getSecurityIsin());
+            if (operation.getDeleteOrderRq() != null)
+                securityIsins.add(operation.getDeleteOrderRq().getSecurityIsin());
+        }
+        executor.executeAcross(securityIsins, () -> {
+            orderHandler.handleBatchEnterOrder(batchEnterOrderRq);
+            securityIsins.forEach(marketDataPublisher::publishChanges);
+        });
+    }
+
+    private void receiveMassCancelRq(MassCancelRq massCancelRq) {
+        if (massCancelRq.getSecurityIsin() == null)
+            executor.executeOnAllShards(() -> {
+                orderHandler.handleMassCancel(massCancelRq);
+                marketDataPublisher.publishAllChanges();
+            });
+        else
+            executor.execute(massCancelRq.getSecurityIsin(), () -> {
+                orderHandler.handleMassCancel(massCancelRq);
+                marketDataPublisher.publishChanges(massCancelRq.getSecurityIsin());
+            });
     }
 }
@@ -0,0 +1,154 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.config.Modules;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+@Component
+public class ShardedRequestExecutor implements SmartLifecycle {
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 1;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final boolean sharded;
+    private final ExecutorService[] shards;
+    private volatile boolean running;
+
+    public ShardedRequestExecutor(@Value("${" + Modules.SHARDED_MATCHING + ":false}") boolean sharded,
+                                  @Value("${matchingShards:0}") int shardCount) {
+        this.sharded = sharded;
+        this.shards = new ExecutorService[shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < shards.length; i++) {
+            String name = "matching-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, name));
+        }
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public synchronized void execute(String securityIsin, Runnable request) {
+        if (!sharded) {
+            request.run();
+            return;
+        }
+        shards[shardOf(securityIsin)].execute(() -> run(securityIsin, request));
+    }
+
+    public synchronized void executeAcross(Collection<String> securityIsins, Runnable request) {
+        if (!sharded) {
+            request.run();
+            return;
+        }
+        int[] involved = securityIsins.stream().mapToInt(this::shardOf).distinct().sorted().toArray();
+        executeAcrossShards(involved.length == 0 ? new int[] {0} : involved, String.join(",", securityIsins), request);
+    }
+
+    public synchronized void executeOnAllShards(Runnable request) {
+        if (!sharded) {
+            request.run();
+            return;
+        }
+        executeAcrossShards(IntStream.range(0, shards.length).toArray(), "all securities", request);
+    }
+
+    private void executeAcrossShards(int[] involved, String description, Runnable request) {
+        CountDownLatch parked = new CountDownLatch(involved.length - 1);
+        CountDownLatch done = new CountDownLatch(1);
+        for (int i = 1; i < involved.length; i++) {
+            shards[involved[i]].execute(() -> {
+                parked.countDown();
+                awaitUninterruptibly(done);
+            });
+        }
+        shards[involved[0]].execute(() -> {
+            try {
+                awaitUninterruptibly(parked);
+                run(description, request);
+            } finally {
+                done.countDown();
+            }
+        });
+    }
+
+    private void run(String description, Runnable request) {
+        try {
+            request.run();
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, "Failed to handle request for " + description, e);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    public int shardOf(String securityIsin) {
+        return Math.floorMod(Objects.hashCode(securityIsin), shards.length);
+    }
+
+    public void awaitIdle() throws InterruptedException {
+        if (!sharded)
+            return;
+        CountDownLatch latch = new CountDownLatch(shards.length);
+        for (ExecutorService shard : shards)
+            shard.execute(latch::countDown);
+        latch.await();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        try {
+            shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService shard : shards)
+            shard.shutdown();
+        for (ExecutorService shard : shards)
+            shard.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,400 @@
+package ir.ut.se.tinyme.messaging.codec;
+
+import ir.ut.se.tinyme.domain.entity.Side;
+import ir.ut.se.tinyme.messaging.LevelAction;
+import ir.ut.se.tinyme.messaging.LevelDTO;
+import ir.ut.se.tinyme.messaging.TradeDTO;
+import ir.ut.se.tinyme.messaging.event.*;
+import ir.ut.se.tinyme.messaging.request.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BinaryCodec {
+    static final byte NULL_OPERATION = -1;
+    static final byte NO_OPERATION = 0;
+    static final byte ENTER_ORDER_RQ = 1;
+    static final byte DELETE_ORDER_RQ = 2;
+    static final byte MATCHING_STATE_RQ = 3;
+    static final byte BATCH_ENTER_ORDER_RQ = 4;
+    static final byte MASS_CANCEL_RQ = 5;
+    static final byte ORDER_ACCEPTED = 16;
+    static final byte ORDER_ACTIVATED = 17;
+    static final byte ORDER_DELETED = 18;
+    static final byte ORDER_EXECUTED = 19;
+    static final byte ORDER_REJECTED = 20;
+    static final byte ORDER_UPDATED = 21;
+    static final byte TRADE = 22;
+    static final byte OPENING_PRICE = 23;
+    static final byte SECURITY_STATE_CHANGED = 24;
+    static final byte ORDERS_CANCELLED = 25;
+    static final byte MARKET_DATA_DELTA = 26;
+    static final byte MARKET_DATA_SNAPSHOT = 27;
+    static final byte EVENT_LIST = 64;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final Side[] SIDES = Side.values();
+    private static final OrderEntryType[] ENTRY_TYPES = OrderEntryType.values();
+    private static final MatcherState[] MATCHER_STATES = MatcherState.values();
+    private static final LevelAction[] LEVEL_ACTIONS = LevelAction.values();
+
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+
+    private BinaryCodec() {
+    }
+
+    public static boolean supports(Object payload) {
+        return payload instanceof EnterOrderRq || payload instanceof DeleteOrderRq
+                || payload instanceof MatchingStateRq || payload instanceof BatchEnterOrderRq
+                || payload instanceof MassCancelRq || payload instanceof Event;
+    }
+
+    public static ByteBuffer encode(Object payload) {
+        ByteBuffer buffer = buffers.get();
+        while (true) {
+            buffer.clear();
+            try {
+                write(buffer, payload);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffers.set(buffer);
+            }
+        }
+    }
+
+    public static ByteBuffer encodeAll(List<? extends Event> events) {
+        ByteBuffer buffer = buffers.get();
+        while (true) {
+            buffer.clear();
+            try {
+                buffer.put(EVENT_LIST);
+                buffer.putInt(events.size());
+                for (Event event : events)
+                    write(buffer, event);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffers.set(buffer);
+            }
+        }
+    }
+
+    public static Object decode(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        if (tag != EVENT_LIST)
+            return read(buffer, tag);
+        int count = buffer.getInt();
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            events.add((Event) read(buffer, buffer.get()));
+        return events;
+    }
+
+    private static void write(ByteBuffer buffer, Object payload) {
+        if (payload instanceof EnterOrderRq rq) {
+            buffer.put(ENTER_ORDER_RQ);
+            putEnum(buffer, rq.getRequestType());
+            buffer.putLong(rq.getRequestId());
+            putString(buffer, rq.getSecurityIsin());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+            putEnum(buffer, rq.getSide());
+            buffer.putInt(rq.getQuantity());
+            buffer.putInt(rq.getPrice());
+            buffer.putLong(rq.getBrokerId());
+            buffer.putLong(rq.getShareholderId());
+            buffer.putInt(rq.getPeakSize());
+            buffer.putInt(rq.getMinimumExecutionQuantity());
+            buffer.putInt(rq.getStopPrice());
+        } else if (payload instanceof DeleteOrderRq rq) {
+            buffer.put(DELETE_ORDER_RQ);
+            buffer.putLong(rq.getRequestId());
+            putString(buffer, rq.getSecurityIsin());
+            putEnum(buffer, rq.getSide());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+        } else if (payload instanceof MatchingStateRq rq) {
+            buffer.put(MATCHING_STATE_RQ);
+            putString(buffer, rq.getSecurityIsin());
+            putEnum(buffer, rq.getState());
+        } else if (payload instanceof BatchEnterOrderRq rq) {
+            buffer.put(BATCH_ENTER_ORDER_RQ);
+            buffer.putLong(rq.getRequestId());
+            if (rq.getOperations() == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(rq.getOperations().size());
+                for (BatchOperation operation : rq.getOperations()) {
+                    if (operation == null)
+                        buffer.put(NULL_OPERATION);
+                    else if (operation.getEnterOrderRq() != null)
+                        write(buffer, operation.getEnterOrderRq());
+                    else if (operation.getDeleteOrderRq() != null)
+                        write(buffer, operation.getDeleteOrderRq());
+                    else
+                        buffer.put(NO_OPERATION);
+                }
+            }
+        } else if (payload instanceof MassCancelRq rq) {
+            buffer.put(MASS_CANCEL_RQ);
+            buffer.putLong(rq.getRequestId());
+            putString(buffer, rq.getSecurityIsin());
+            putEnum(buffer, rq.getSide());
+            buffer.putLong(rq.getBrokerId());
+            buffer.putLong(rq.getShareholderId());
+        } else if (payload instanceof OrderAcceptedEvent event) {
+            putOrderEvent(buffer, ORDER_ACCEPTED, event, event.getRequestId(), event.getOrderId());
+        } else if (payload instanceof OrderActivatedEvent event) {
+            putOrderEvent(buffer, ORDER_ACTIVATED, event, event.getRqId(), event.getOrderId());
+        } else if (payload instanceof OrderDeletedEvent event) {
+            putOrderEvent(buffer, ORDER_DELETED, event, event.getRequestId(), event.getOrderId());
+        } else if (payload instanceof OrderUpdatedEvent event) {
+            putOrderEvent(buffer, ORDER_UPDATED, event, event.getRequestId(), event.getOrderId());
+        } else if (payload instanceof OrderExecutedEvent event) {
+            putOrderEvent(buffer, ORDER_EXECUTED, event, event.getRequestId(), event.getOrderId());
+            List<TradeDTO> trades = event.getTrades() == null ? List.of() : event.getTrades();
+            buffer.putInt(trades.size());
+            for (TradeDTO trade : trades) {
+                putString(buffer, trade.securityIsin());
+                buffer.putInt(trade.price());
+                buffer.putInt(trade.quantity());
+                buffer.putLong(trade.buyOrderId());
+                buffer.putLong(trade.sellOrderId());
+            }
+        } else if (payload instanceof OrderRejectedEvent event) {
+            putOrderEvent(buffer, ORDER_REJECTED, event, event.getRequestId(), event.getOrderId());
+            List<String> errors = event.getErrors() == null ? List.of() : event.getErrors();
+            buffer.putInt(errors.size());
+            for (String error : errors)
+                putString(buffer, error);
+        } else if (payload instanceof TradeEvent event) {
+            buffer.put(TRADE);
+            putTime(buffer, event.getTime());
+            putString(buffer, event.getSecurityIsin());
+            buffer.putInt(event.getPrice());
+            buffer.putInt(event.getQuantity());
+            buffer.putLong(event.getBuyId());
+            buffer.putLong(event.getSellId());
+        } else if (payload instanceof OpeningPriceEvent event) {
+            buffer.put(OPENING_PRICE);
+            putTime(buffer, event.getTime());
+            putString(buffer, event.getSecurityIsin());
+            buffer.putInt(event.getOpeningPrice());
+            buffer.putInt(event.getTradableQuantity());
+        } else if (payload instanceof SecurityStateChangedEvent event) {
+            buffer.put(SECURITY_STATE_CHANGED);
+            putTime(buffer, event.getTime());
+            putString(buffer, event.getSecurityIsin());
+            putEnum(buffer, event.getMatcherState());
+        } else if (payload instanceof OrdersCancelledEvent event) {
+            buffer.put(ORDERS_CANCELLED);
+            putTime(buffer, event.getTime());
+            buffer.putLong(event.getRequestId());
+            List<Long> orderIds = event.getOrderIds() == null ? List.of() : event.getOrderIds();
+            buffer.putInt(orderIds.size());
+            for (long orderId : orderIds)
+                buffer.putLong(orderId);
+        } else if (payload instanceof MarketDataDeltaEvent event) {
+            buffer.put(MARKET_DATA_DELTA);
+            putTime(buffer, event.getTime());
+            putString(buffer, event.getSecurityIsin());
+            buffer.putLong(event.getSequence());
+            putLevels(buffer, event.getLevels());
+        } else if (payload instanceof MarketDataSnapshotEvent event) {
+            buffer.put(MARKET_DATA_SNAPSHOT);
+            putTime(buffer, event.getTime());
+            putString(buffer, event.getSecurityIsin());
+            buffer.putLong(event.getSequence());
+            putLevels(buffer, event.getLevels());
+        } else {
+            throw new IllegalArgumentException("No binary layout for " + payload.getClass().getName());
+        }
+    }
+
+    private static Object read(ByteBuffer buffer, byte tag) {
+        return switch (tag) {
+            case ENTER_ORDER_RQ -> {
+                EnterOrderRq rq = new EnterOrderRq();
+                rq.setRequestType(getEnum(buffer, ENTRY_TYPES));
+                rq.setRequestId(buffer.getLong());
+                rq.setSecurityIsin(getString(buffer));
+                rq.setOrderId(buffer.getLong());
+                rq.setEntryTime(getTime(buffer));
+                rq.setSide(getEnum(buffer, SIDES));
+                rq.setQuantity(buffer.getInt());
+                rq.setPrice(buffer.getInt());
+                rq.setBrokerId(buffer.getLong());
+                rq.setShareholderId(buffer.getLong());
+                rq.setPeakSize(buffer.getInt());
+                rq.setMinimumExecutionQuantity(buffer.getInt());
+                rq.setStopPrice(buffer.getInt());
+                yield rq;
+            }
+            case DELETE_ORDER_RQ -> {
+                DeleteOrderRq rq = new DeleteOrderRq();
+                rq.setRequestId(buffer.getLong());
+                rq.setSecurityIsin(getString(buffer));
+                rq.setSide(getEnum(buffer, SIDES));
+                rq.setOrderId(buffer.getLong());
+                rq.setEntryTime(getTime(buffer));
+                yield rq;
+            }
+            case MATCHING_STATE_RQ -> {
+                MatchingStateRq rq = new MatchingStateRq();
+                rq.setSecurityIsin(getString(buffer));
+                rq.setState(getEnum(buffer, MATCHER_STATES));
+                yield rq;
+            }
+            case BATCH_ENTER_ORDER_RQ -> {
+                long requestId = buffer.getLong();
+                int count = buffer.getInt();
+                if (count < -1 || count > buffer.remaining())
+                    throw new IllegalArgumentException("Invalid batch operation count " + count);
+                if (count == -1)
+                    yield new BatchEnterOrderRq(requestId, null);
+                List<BatchOperation> operations = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    byte operationTag = buffer.get();
+                    if (operationTag == NULL_OPERATION)
+                        operations.add(null);
+                    else if (operationTag == NO_OPERATION)
+                        operations.add(new BatchOperation());
+                    else if (operationTag == ENTER_ORDER_RQ)
+                        operations.add(BatchOperation.enter((EnterOrderRq) read(buffer, operationTag)));
+                    else if (operationTag == DELETE_ORDER_RQ)
+                        operations.add(BatchOperation.delete((DeleteOrderRq) read(buffer, operationTag)));
+                    else
+                        throw new IllegalArgumentException("Unknown batch operation tag " + operationTag);
+                }
+                yield new BatchEnterOrderRq(requestId, operations);
+            }
+            case MASS_CANCEL_RQ -> new MassCancelRq(buffer.getLong(), getString(buffer), getEnum(buffer, SIDES),
+                    buffer.getLong(), buffer.getLong());
+            case ORDER_ACCEPTED -> new OrderAcceptedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            case ORDER_ACTIVATED -> new OrderActivatedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            case ORDER_DELETED -> new OrderDeletedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            case ORDER_UPDATED -> new OrderUpdatedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            case ORDER_EXECUTED -> {
+                LocalDateTime time = getTime(buffer);
+                long requestId = buffer.getLong();
+                long orderId = buffer.getLong();
+                int count = buffer.getInt();
+                List<TradeDTO> trades = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    trades.add(new TradeDTO(getString(buffer), buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getLong()));
+                yield new OrderExecutedEvent(time, requestId, orderId, trades);
+            }
+            case ORDER_REJECTED -> {
+                LocalDateTime time = getTime(buffer);
+                long requestId = buffer.getLong();
+                long orderId = buffer.getLong();
+                int count = buffer.getInt();
+                List<String> errors = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    errors.add(getString(buffer));
+                yield new OrderRejectedEvent(time, requestId, orderId, errors);
+            }
+            case TRADE -> new TradeEvent(getTime(buffer), getString(buffer), buffer.getInt(), buffer.getInt(),
+                    buffer.getLong(), buffer.getLong());
+            case OPENING_PRICE -> new OpeningPriceEvent(getTime(buffer), getString(buffer), buffer.getInt(), buffer.getInt());
+            case SECURITY_STATE_CHANGED -> new SecurityStateChangedEvent(getTime(buffer),
+                    getString(buffer), getEnum(buffer, MATCHER_STATES));
+            case ORDERS_CANCELLED -> {
+                LocalDateTime time = getTime(buffer);
+                long requestId = buffer.getLong();
+                int count = buffer.getInt();
+                List<Long> orderIds = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    orderIds.add(buffer.getLong());
+                yield new OrdersCancelledEvent(time, requestId, orderIds);
+            }
+            case MARKET_DATA_DELTA -> new MarketDataDeltaEvent(getTime(buffer),
+                    getString(buffer), buffer.getLong(), getLevels(buffer));
+            case MARKET_DATA_SNAPSHOT -> new MarketDataSnapshotEvent(getTime(buffer),
+                    getString(buffer), buffer.getLong(), getLevels(buffer));
+            default -> throw new IllegalArgumentException("Unknown binary message tag " + tag);
+        };
+    }
+
+    private static void putLevels(ByteBuffer buffer, List<LevelDTO> levels) {
+        levels = levels == null ? List.of() : levels;
+        buffer.putInt(levels.size());
+        for (LevelDTO level : levels) {
+            putEnum(buffer, level.side());
+            putEnum(buffer, level.action());
+            buffer.putInt(level.price());
+            buffer.putLong(level.quantity());
+            buffer.putInt(level.orderCount());
+        }
+    }
+
+    private static List<LevelDTO> getLevels(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<LevelDTO> levels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            levels.add(new LevelDTO(getEnum(buffer, SIDES), getEnum(buffer, LEVEL_ACTIONS),
+                    buffer.getInt(), buffer.getLong(), buffer.getInt()));
+        return levels;
+    }
+
+    private static void putOrderEvent(ByteBuffer buffer, byte tag, Event event, long requestId, long orderId) {
+        buffer.put(tag);
+        putTime(buffer, event.getTime());
+        buffer.putLong(requestId);
+        buffer.putLong(orderId);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1)
+            return null;
+        if (length < 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("Invalid string length " + length);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        if (time == null) {
+            buffer.putLong(NO_TIME);
+            buffer.putInt(0);
+            return;
+        }
+        buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(time.getNano());
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static void putEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.put(value == null ? -1 : (byte) value.ordinal());
+    }
+
+    private static <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+        byte ordinal = buffer.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+}
@@ -0,0 +1,64 @@
+package ir.ut.se.tinyme.messaging.codec;
+
+import ir.ut.se.tinyme.messaging.event.Event;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class WireFormatMessageConverter implements MessageConverter {
+    public static final String WIRE_FORMAT_PROPERTY = "wireFormat";
+    public static final String BINARY_WIRE_FORMAT = "binary";
+    private static final String TYPE_ID_PROPERTY = "_type";
+
+    private final MessageConverter jsonConverter;
+    private final boolean binaryOutput;
+
+    public WireFormatMessageConverter(MessageConverter jsonConverter, boolean binaryOutput) {
+        this.jsonConverter = jsonConverter;
+        this.binaryOutput = binaryOutput;
+    }
+
+    @Override
+    public Message toMessage(Object payload, Session session) throws JMSException, MessageConversionException {
+        if (binaryOutput && BinaryCodec.supports(payload))
+            return bytesMessage(session, BinaryCodec.encode(payload), payload.getClass().getName());
+        if (binaryOutput && isEventList(payload)) {
+            @SuppressWarnings("unchecked")
+            List<? extends Event> events = (List<? extends Event>) payload;
+            return bytesMessage(session, BinaryCodec.encodeAll(events), List.class.getName());
+        }
+        return jsonConverter.toMessage(payload, session);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        if (!(message instanceof BytesMessage bytesMessage)
+                || !BINARY_WIRE_FORMAT.equals(message.getStringProperty(WIRE_FORMAT_PROPERTY)))
+            return jsonConverter.fromMessage(message);
+        byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(body);
+        try {
+            return BinaryCodec.decode(ByteBuffer.wrap(body));
+        } catch (RuntimeException e) {
+            throw new MessageConversionException("Malformed binary message", e);
+        }
+    }
+
+    private Message bytesMessage(Session session, ByteBuffer body, String typeId) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        message.setStringProperty(TYPE_ID_PROPERTY, typeId);
+        message.setStringProperty(WIRE_FORMAT_PROPERTY, BINARY_WIRE_FORMAT);
+        return message;
+    }
+
+    private boolean isEventList(Object payload) {
+        return payload instanceof List<?> list && list.stream().allMatch(Event.class::isInstance);
+    }
+}
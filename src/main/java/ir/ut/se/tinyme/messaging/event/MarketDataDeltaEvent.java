@@ -0,0 +1,27 @@
+package ir.ut.se.tinyme.messaging.event;
+
+import ir.ut.se.tinyme.messaging.LevelDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+public class MarketDataDeltaEvent extends Event {
+    private String securityIsin;
+    private long sequence;
+    private List<LevelDTO> levels;
+
+    public MarketDataDeltaEvent(LocalDateTime time, String securityIsin, long sequence, List<LevelDTO> levels) {
+        super(time);
+        this.securityIsin = securityIsin;
+        this.sequence = sequence;
+        this.levels = levels;
+    }
+}
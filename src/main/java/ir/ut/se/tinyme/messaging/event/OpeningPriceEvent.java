@@ -6,6 +6,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
@@ -15,4 +17,10 @@ public class OpeningPriceEvent extends Event {
     private int openingPrice;
     private int tradableQuantity;
     
+    public OpeningPriceEvent(LocalDateTime time, String securityIsin, int openingPrice, int tradableQuantity) {
+        super(time);
+        this.securityIsin = securityIsin;
+        this.openingPrice = openingPrice;
+        this.tradableQuantity = tradableQuantity;
+    }
 }
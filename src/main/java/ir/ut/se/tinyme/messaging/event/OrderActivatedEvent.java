@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -15,4 +16,10 @@ import java.util.List;
 public class OrderActivatedEvent extends Event{
     private long rqId;
     private long orderId;
+
+    public OrderActivatedEvent(LocalDateTime time, long rqId, long orderId) {
+        super(time);
+        this.rqId = rqId;
+        this.orderId = orderId;
+    }
 }
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -15,4 +16,11 @@ public class OrderRejectedEvent extends Event {
     private long requestId;
     private long orderId;
     private List<String> errors;
+
+    public OrderRejectedEvent(LocalDateTime time, long requestId, long orderId, List<String> errors) {
+        super(time);
+        this.requestId = requestId;
+        this.orderId = orderId;
+        this.errors = errors;
+    }
 }
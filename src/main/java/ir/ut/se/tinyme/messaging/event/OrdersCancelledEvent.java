@@ -0,0 +1,24 @@
+package ir.ut.se.tinyme.messaging.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrdersCancelledEvent extends Event {
+    private long requestId;
+    private List<Long> orderIds;
+
+    public OrdersCancelledEvent(LocalDateTime time, long requestId, List<Long> orderIds) {
+        super(time);
+        this.requestId = requestId;
+        this.orderIds = orderIds;
+    }
+}
@@ -15,4 +15,10 @@ import java.time.LocalDateTime;
 public class SecurityStateChangedEvent extends Event {
     private String securityIsin;
     private MatcherState matcherState;
+
+    public SecurityStateChangedEvent(LocalDateTime time, String securityIsin, MatcherState matcherState) {
+        super(time);
+        this.securityIsin = securityIsin;
+        this.matcherState = matcherState;
+    }
 }
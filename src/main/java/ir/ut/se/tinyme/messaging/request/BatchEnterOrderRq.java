@@ -0,0 +1,15 @@
+package ir.ut.se.tinyme.messaging.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchEnterOrderRq {
+    private long requestId;
+    private List<BatchOperation> operations;
+}
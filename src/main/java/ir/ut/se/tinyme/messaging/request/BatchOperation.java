@@ -0,0 +1,21 @@
+package ir.ut.se.tinyme.messaging.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchOperation {
+    private EnterOrderRq enterOrderRq;
+    private DeleteOrderRq deleteOrderRq;
+
+    public static BatchOperation enter(EnterOrderRq enterOrderRq) {
+        return new BatchOperation(enterOrderRq, null);
+    }
+
+    public static BatchOperation delete(DeleteOrderRq deleteOrderRq) {
+        return new BatchOperation(null, deleteOrderRq);
+    }
+}
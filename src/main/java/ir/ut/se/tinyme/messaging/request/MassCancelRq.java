@@ -0,0 +1,17 @@
+package ir.ut.se.tinyme.messaging.request;
+
+import ir.ut.se.tinyme.domain.entity.Side;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MassCancelRq {
+    private long requestId;
+    private String securityIsin;
+    private Side side;
+    private long brokerId;
+    private long shareholderId;
+}
@@ -13,6 +13,8 @@ public class SecurityRepository {
     }
 
     public void addSecurity(Security security) {
+        Security registered = securityByIsin.get(security.getIsin());
+        security.setIndex(registered == null ? securityByIsin.size() : registered.getIndex());
         securityByIsin.put(security.getIsin(), security);
     }
 
@@ -20,7 +22,7 @@ public class SecurityRepository {
         securityByIsin.clear();
     }
 
-    Iterable<? extends Security> allSecurities() {
+    public Iterable<? extends Security> allSecurities() {
         return securityByIsin.values();
     }
 }
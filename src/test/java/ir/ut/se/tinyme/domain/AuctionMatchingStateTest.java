@@ -523,6 +523,28 @@ public class AuctionMatchingStateTest {
                         ((OrderActivatedEvent) event).getRqId() == 2
         ));
     }
-}
 
+    @Test
+    void iceberg_buy_order_keeps_trading_its_hidden_quantity_while_uncrossing() {
+        MatchingStateRq matchingStateRq = CreateNewMatchingStateRq(security.getIsin(), MatcherState.AUCTION);
+        mockMatcherHandler.handleMatchStateRq(matchingStateRq);
+        EnterOrderRq enterOrderRq = EnterOrderRq.createNewOrderRq(1, security.getIsin(), 7, LocalDateTime.now(),
+                Side.SELL, 285, 15700, broker2.getBrokerId(), shareholder.getShareholderId(), 0, 0);
+        EnterOrderRq enterOrderRq2 = EnterOrderRq.createNewOrderRq(2, security.getIsin(), 8, LocalDateTime.now(),
+                Side.BUY, 500, 15820, broker.getBrokerId(), shareholder2.getShareholderId(), 100, 0);
+        mockOrderHandler.handleEnterOrder(enterOrderRq);
+        mockOrderHandler.handleEnterOrder(enterOrderRq2);
+        assertThat(security.getAuctionData().getBestOpeningPrice()).isEqualTo(15700);
+
+        mockMatcherHandler.handleMatchStateRq(matchingStateRq);
 
+        Order icebergOrder = orderBook.findByOrderId(Side.BUY, 8);
+        assertThat(icebergOrder.getQuantity()).isEqualTo(15);
+        assertThat(icebergOrder.getTotalQuantity()).isEqualTo(215);
+        assertThat(orderBook.findByOrderId(Side.SELL, 7)).isNull();
+        assertThat(broker.getCredit()).isEqualTo(100_000_000L - 15820L * 215 - 15700L * 285);
+        assertThat(broker2.getCredit()).isEqualTo(900_000_000L + 15700L * 285);
+        assertThat(shareholder2.getPositions().get(security)).isEqualTo(100_000 + 285);
+        assertThat(security.getLastTradePrice()).isEqualTo(15700);
+    }
+}
@@ -14,6 +14,7 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
@@ -247,9 +248,71 @@ public class BrokerCreditTest {
         assertThat(sellerShareholder.getPositions().get(security)).isEqualTo(100_000);
     }
 
+    @Test
+    void new_buy_order_sweeps_levels_using_the_credit_of_its_own_brokers_sells() {
+        assertThat(buyerBroker.reserveCredit(100_000_000L - 5_530_000L)).isTrue();
+        orderBook.enqueue(Order.builder()
+                .orderId(12)
+                .security(security)
+                .side(Side.SELL)
+                .quantity(100)
+                .price(15790)
+                .broker(buyerBroker)
+                .shareholder(buyerShareholder)
+                .entryTime(LocalDateTime.now())
+                .status(OrderStatus.NEW)
+                .build());
+        Order newOrder = Order.builder()
+                .orderId(11)
+                .security(security)
+                .side(Side.BUY)
+                .quantity(450)
+                .price(15800)
+                .broker(buyerBroker)
+                .shareholder(buyerShareholder)
+                .entryTime(LocalDateTime.now())
+                .status(OrderStatus.NEW)
+                .build();
+        assertThat(orderBook.executionCost(newOrder)).isEqualTo(5_530_000L);
+        LinkedList<MatchResult> results = matcher.execute(newOrder);
+        MatchResult result = results.getLast();
+        assertThat(result.outcome()).isEqualTo(MatchingOutcome.EXECUTED);
+        assertThat(result.trades()).hasSize(2);
+        assertThat(result.remainder().getQuantity()).isEqualTo(0);
+
+        assertThat(buyerBroker.getCredit()).isEqualTo(0);
+        assertThat(sellerBroker.getCredit()).isEqualTo(5_530_000L);
+        assertThat(security.getLastTradePrice()).isEqualTo(15800);
+
+        assertThat(buyerShareholder.getPositions().get(security)).isEqualTo(100_350);
+        assertThat(sellerShareholder.getPositions().get(security)).isEqualTo(99_650);
+    }
+
+    @Test
+    void new_buy_order_with_credit_exactly_covering_its_execution_cost() {
+        assertThat(buyerBroker.reserveCredit(100_000_000L - 15_806_500L)).isTrue();
+        Order newOrder = Order.builder()
+                .orderId(11)
+                .security(security)
+                .side(Side.BUY)
+                .quantity(1000)
+                .price(15810)
+                .broker(buyerBroker)
+                .shareholder(buyerShareholder)
+                .entryTime(LocalDateTime.now())
+                .status(OrderStatus.NEW)
+                .build();
+        assertThat(orderBook.executionCost(newOrder)).isEqualTo(15_806_500L);
+        MatchResult result = matcher.execute(newOrder).getLast();
+        assertThat(result.outcome()).isEqualTo(MatchingOutcome.EXECUTED);
+        assertThat(result.trades()).hasSize(3);
+        assertThat(buyerBroker.getCredit()).isEqualTo(0);
+        assertThat(sellerBroker.getCredit()).isEqualTo(15_806_500L);
+    }
+
     @Test
     void new_buy_order_not_enough_credit() {
-        buyerBroker.decreaseCreditBy(90_000_000L);
+        assertThat(buyerBroker.reserveCredit(90_000_000L)).isTrue();
         Order newOrder = Order.builder()
                 .orderId(11)
                 .security(security)
@@ -261,12 +324,14 @@ public class BrokerCreditTest {
                 .entryTime(LocalDateTime.now())
                 .status(OrderStatus.NEW)
                 .build();
+        orderBook.trackChanges();
         LinkedList<MatchResult> results =  matcher.execute(newOrder);
         assertThat(results).hasSize(1);
         MatchResult result = results.get(0);
         assertThat(result.trades()).isEmpty();
         assertThat(result.outcome()).isEqualTo(MatchingOutcome.NOT_ENOUGH_CREDIT);
 
+        assertThat(orderBook.drainChanges()).isEmpty();
         assertThat(buyerBroker.getCredit()).isEqualTo(10_000_000L);
         assertThat(sellerBroker.getCredit()).isEqualTo(0);
 
@@ -457,7 +522,7 @@ public class BrokerCreditTest {
 
     @Test
     void update_order_buy_increase_quantity_not_enough_credit() {
-        buyerBroker.decreaseCreditBy(99_000_000L);
+        assertThat(buyerBroker.reserveCredit(99_000_000L)).isTrue();
         Order toBeUpdateOrder = Order.builder()
                 .orderId(11)
                 .security(security)
@@ -480,4 +545,37 @@ public class BrokerCreditTest {
         assertThat(sellerBroker.getCredit()).isEqualTo(0);
     }
 
+    @Test
+    void reserves_credit_atomically_from_concurrent_threads() throws InterruptedException {
+        Broker broker = Broker.builder().credit(50_000).build();
+        AtomicInteger reserved = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++)
+                    if (broker.reserveCredit(1))
+                        reserved.incrementAndGet();
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertThat(reserved.get()).isEqualTo(50_000);
+        assertThat(broker.getCredit()).isZero();
+        assertThat(broker.reserveCredit(1)).isFalse();
+    }
+
+    @Test
+    void changes_a_reservation_without_releasing_it_first() {
+        Broker broker = Broker.builder().credit(1000).build();
+        assertThat(broker.reserveCredit(600)).isTrue();
+
+        assertThat(broker.changeReservation(600, 900)).isTrue();
+        assertThat(broker.getCredit()).isEqualTo(100);
+        assertThat(broker.changeReservation(900, 1200)).isFalse();
+        assertThat(broker.getCredit()).isEqualTo(100);
+        assertThat(broker.changeReservation(900, 0)).isTrue();
+        assertThat(broker.getCredit()).isEqualTo(1000);
+    }
 }
@@ -177,4 +177,151 @@ class OrderBookTest {
         orderBook.removeByOrderId(Side.SELL, 10);
         assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void enqueues_an_order_after_the_orders_with_the_same_price() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = Order.builder().orderId(11).security(security).side(Side.BUY).quantity(10).price(15450)
+                .broker(orders.get(0).getBroker()).shareholder(orders.get(0).getShareholder()).build();
+        orderBook.enqueue(order);
+        assertThat(orderBook.getBuyQueue()).extracting(Order::getOrderId).containsExactly(1L, 2L, 3L, 4L, 11L, 5L);
+    }
+
+    @Test
+    void removes_an_order_in_the_middle_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.removeByOrderId(Side.BUY, 2)).isTrue();
+        assertThat(orderBook.findByOrderId(Side.BUY, 2)).isNull();
+        assertThat(orderBook.removeByOrderId(Side.BUY, 2)).isFalse();
+        assertThat(orderBook.getBuyQueue()).extracting(Order::getOrderId).containsExactly(1L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void calculates_the_opening_price_closest_to_the_last_trade_price_when_nothing_crosses() {
+        AuctionData auctionData = security.getOrderBook().calculateTheBestOpeningPrice(15790);
+        assertThat(auctionData.getBestOpeningPrice()).isEqualTo(15800);
+        assertThat(auctionData.getBestQuantity()).isZero();
+    }
+
+    @Test
+    void calculates_the_opening_price_with_the_maximum_tradable_quantity() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.enqueue(Order.builder().orderId(11).security(security).side(Side.SELL).quantity(500).price(15450)
+                .broker(orders.get(0).getBroker()).shareholder(orders.get(0).getShareholder()).build());
+        AuctionData auctionData = orderBook.calculateTheBestOpeningPrice(15600);
+        assertThat(auctionData.getBestOpeningPrice()).isEqualTo(15450);
+        assertThat(auctionData.getBestQuantity()).isEqualTo(500);
+    }
+
+    @Test
+    void keeps_the_opening_price_up_to_date_after_partial_fills_and_removals() {
+        OrderBook orderBook = security.getOrderBook();
+        Order sellOrder = Order.builder().orderId(11).security(security).side(Side.SELL).quantity(500).price(15450)
+                .broker(orders.get(0).getBroker()).shareholder(orders.get(0).getShareholder()).build();
+        orderBook.enqueue(sellOrder);
+        orderBook.decreaseQuantity(sellOrder, 200);
+        AuctionData auctionData = orderBook.calculateTheBestOpeningPrice(15600);
+        assertThat(auctionData.getBestOpeningPrice()).isEqualTo(15500);
+        assertThat(auctionData.getBestQuantity()).isEqualTo(300);
+
+        orderBook.removeByOrderId(Side.BUY, 1);
+        auctionData = orderBook.calculateTheBestOpeningPrice(15600);
+        assertThat(auctionData.getBestOpeningPrice()).isEqualTo(15450);
+        assertThat(auctionData.getBestQuantity()).isEqualTo(300);
+    }
+
+    @Test
+    void keeps_the_sell_quantity_of_each_shareholder_up_to_date() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+
+        orderBook.decreaseQuantity(orders.get(5), 50);
+        orderBook.removeByOrderId(Side.SELL, 7);
+        orderBook.enqueue(IcebergOrder.builder().orderId(11).security(security).side(Side.SELL).quantity(100)
+                .price(15900).peakSize(10).displayedQuantity(10).broker(orders.get(0).getBroker())
+                .shareholder(shareholder).build());
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1605);
+        assertThat(orderBook.totalSellQuantityByShareholder(Shareholder.builder().shareholderId(2).build())).isZero();
+    }
+
+    @Test
+    void aggregates_the_top_of_book_and_depth_per_price_level() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getTopOfBook(Side.BUY)).isEqualTo(new DepthLevel(15700, 304, 1));
+        assertThat(orderBook.getDepth(Side.SELL, 2)).containsExactly(
+                new DepthLevel(15800, 350, 1), new DepthLevel(15810, 1085, 2));
+
+        orderBook.removeFirst(Side.BUY);
+        orderBook.decreaseQuantity(orders.get(2), 45);
+        assertThat(orderBook.getTopOfBook(Side.BUY)).isEqualTo(new DepthLevel(15500, 43, 1));
+        assertThat(orderBook.getDepth(Side.BUY, 5)).containsExactly(new DepthLevel(15500, 43, 1),
+                new DepthLevel(15450, 926, 2), new DepthLevel(15400, 1000, 1));
+        assertThat(new OrderBook().getTopOfBook(Side.SELL)).isNull();
+    }
+
+    @Test
+    void calculates_the_executable_quantity_at_the_limit_price_including_hidden_quantities() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        orderBook.enqueue(IcebergOrder.builder().orderId(11).security(security).side(Side.SELL).quantity(100)
+                .price(15810).peakSize(10).displayedQuantity(10).broker(broker).shareholder(shareholder).build());
+
+        assertThat(orderBook.executableQuantity(Order.builder().security(security).side(Side.BUY)
+                .quantity(2000).price(15810).broker(broker).shareholder(shareholder).build())).isEqualTo(1535);
+        assertThat(orderBook.executableQuantity(Order.builder().security(security).side(Side.BUY)
+                .quantity(2000).price(15805).broker(broker).shareholder(shareholder).build())).isEqualTo(350);
+        assertThat(orderBook.executableQuantity(Order.builder().security(security).side(Side.BUY)
+                .quantity(500).price(15820).broker(broker).shareholder(shareholder).build())).isEqualTo(500);
+        assertThat(orderBook.executableQuantity(Order.builder().security(security).side(Side.SELL)
+                .quantity(1000).price(15500).broker(broker).shareholder(shareholder).build())).isEqualTo(347);
+    }
+
+    @Test
+    void rolls_back_the_journaled_changes_of_a_match() {
+        OrderBook orderBook = security.getOrderBook();
+        IcebergOrder icebergOrder = IcebergOrder.builder().orderId(11).security(security).side(Side.SELL)
+                .quantity(100).price(15800).peakSize(10).displayedQuantity(10).broker(orders.get(0).getBroker())
+                .shareholder(orders.get(0).getShareholder()).build();
+        orderBook.enqueue(icebergOrder);
+        List<Order> sellQueue = orderBook.getSellQueue();
+
+        orderBook.beginJournal();
+        orderBook.removeFirst(Side.SELL);
+        orderBook.removeFirst(Side.SELL);
+        orderBook.replenish(icebergOrder);
+        orderBook.enqueue(icebergOrder);
+        orderBook.decreaseQuantity(orders.get(6), 100);
+        orderBook.rollbackJournal();
+
+        assertThat(orderBook.getSellQueue()).containsExactlyElementsOf(sellQueue);
+        assertThat(icebergOrder.getQuantity()).isEqualTo(10);
+        assertThat(icebergOrder.getTotalQuantity()).isEqualTo(100);
+        assertThat(orders.get(6).getQuantity()).isEqualTo(285);
+        assertThat(orderBook.getDepth(Side.SELL, 2)).containsExactly(
+                new DepthLevel(15800, 360, 2), new DepthLevel(15810, 1085, 2));
+        assertThat(orderBook.totalSellQuantityByShareholder(icebergOrder.getShareholder())).isEqualTo(1940);
+    }
+
+    @Test
+    void reports_the_price_levels_changed_since_the_last_drain() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.drainChanges()).isEmpty();
+
+        orderBook.trackChanges();
+        orderBook.removeFirst(Side.BUY);
+        orderBook.decreaseQuantity(orders.get(2), 45);
+        orderBook.decreaseQuantity(orders.get(6), 100);
+        orderBook.enqueue(Order.builder().orderId(11).security(security).side(Side.SELL).quantity(50).price(15900)
+                .broker(orders.get(0).getBroker()).shareholder(orders.get(0).getShareholder()).build());
+
+        assertThat(orderBook.drainChanges()).containsExactly(
+                new LevelUpdate(Side.BUY, 15700, 0, 0),
+                new LevelUpdate(Side.BUY, 15450, 926, 2),
+                new LevelUpdate(Side.SELL, 15810, 985, 2),
+                new LevelUpdate(Side.SELL, 15900, 50, 1));
+        assertThat(orderBook.drainChanges()).isEmpty();
+    }
+}
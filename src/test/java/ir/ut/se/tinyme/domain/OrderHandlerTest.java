@@ -8,8 +8,11 @@ import ir.ut.se.tinyme.messaging.EventPublisher;
 import ir.ut.se.tinyme.messaging.Message;
 import ir.ut.se.tinyme.messaging.TradeDTO;
 import ir.ut.se.tinyme.messaging.event.*;
+import ir.ut.se.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.BatchOperation;
 import ir.ut.se.tinyme.messaging.request.DeleteOrderRq;
 import ir.ut.se.tinyme.messaging.request.EnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.MassCancelRq;
 import ir.ut.se.tinyme.repository.BrokerRepository;
 import ir.ut.se.tinyme.repository.SecurityRepository;
 import ir.ut.se.tinyme.repository.ShareholderRepository;
@@ -771,4 +774,93 @@ public class OrderHandlerTest {
         assertThat(shareholder1.hasEnoughPositionsOn(security, 100_000)).isTrue();
         assertThat(shareholder.hasEnoughPositionsOn(security, 500)).isTrue();
     }
+
+    @Test
+    void batch_operations_are_processed_in_sequence_and_answered_with_one_message() {
+        orderHandler.handleBatchEnterOrder(new BatchEnterOrderRq(10, List.of(
+                BatchOperation.enter(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(),
+                        Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0, 0)),
+                BatchOperation.enter(EnterOrderRq.createUpdateOrderRq(2, "ABC", 200, LocalDateTime.now(),
+                        Side.SELL, 400, 15500, 2, shareholder.getShareholderId(), 0, 0)),
+                BatchOperation.delete(new DeleteOrderRq(3, "ABC", Side.SELL, 200)),
+                BatchOperation.delete(new DeleteOrderRq(4, "ABC", Side.SELL, 200)),
+                new BatchOperation()
+        )));
+
+        ArgumentCaptor<List<Event>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(eventPublisher).publishMany(argumentCaptor.capture());
+        verify(eventPublisher, never()).publish(any());
+        assertThat(argumentCaptor.getValue()).containsExactly(
+                new OrderAcceptedEvent(1, 200),
+                new OrderUpdatedEvent(2, 200),
+                new OrderDeletedEvent(3, 200),
+                new OrderRejectedEvent(4, 200, List.of(Message.ORDER_ID_NOT_FOUND)),
+                new OrderRejectedEvent(10, 0, List.of(Message.INVALID_BATCH_OPERATION))
+        );
+        assertThat(security.getOrderBook().getSellQueue()).isEmpty();
+    }
+
+    @Test
+    void a_rejected_operation_in_the_middle_of_a_batch_keeps_the_operations_around_it() {
+        orderHandler.handleBatchEnterOrder(new BatchEnterOrderRq(10, List.of(
+                BatchOperation.enter(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(),
+                        Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0, 0)),
+                BatchOperation.enter(EnterOrderRq.createNewOrderRq(2, "ABC", 201, LocalDateTime.now(),
+                        Side.SELL, 300, 15460, 99, shareholder.getShareholderId(), 0, 0)),
+                BatchOperation.enter(EnterOrderRq.createNewOrderRq(3, "ABC", 202, LocalDateTime.now(),
+                        Side.SELL, 300, 15470, 2, shareholder.getShareholderId(), 0, 0))
+        )));
+
+        ArgumentCaptor<List<Event>> argumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(eventPublisher).publishMany(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue()).containsExactly(
+                new OrderAcceptedEvent(1, 200),
+                new OrderRejectedEvent(2, 201, List.of(Message.UNKNOWN_BROKER_ID)),
+                new OrderAcceptedEvent(3, 202)
+        );
+        assertThat(security.getOrderBook().getSellQueue()).extracting(Order::getOrderId).containsExactly(200L, 202L);
+    }
+
+    @Test
+    void a_batch_without_operations_or_with_a_null_operation_is_rejected() {
+        orderHandler.handleBatchEnterOrder(new BatchEnterOrderRq(10, null));
+        orderHandler.handleBatchEnterOrder(new BatchEnterOrderRq(11, Arrays.asList(
+                BatchOperation.delete(new DeleteOrderRq(3, "ABC", Side.SELL, 200)), null)));
+
+        verify(eventPublisher).publish(new OrderRejectedEvent(10, 0, List.of(Message.INVALID_BATCH_OPERATION)));
+        verify(eventPublisher).publishMany(List.of(
+                new OrderRejectedEvent(3, 200, List.of(Message.ORDER_ID_NOT_FOUND)),
+                new OrderRejectedEvent(11, 0, List.of(Message.INVALID_BATCH_OPERATION))));
+    }
+
+    @Test
+    void mass_cancel_removes_the_matching_orders_of_a_broker_and_refunds_their_credit() {
+        Broker broker = Broker.builder().brokerId(5).credit(10_000_000).build();
+        brokerRepository.addBroker(broker);
+        Order otherBrokerBuy = Order.builder().orderId(13).security(security).side(Side.BUY).quantity(50)
+                .price(14900).broker(broker2).shareholder(shareholder).build();
+        security.getOrderBook().enqueue(otherBrokerBuy);
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 11, LocalDateTime.now(),
+                Side.BUY, 100, 15000, 5, shareholder.getShareholderId(), 0, 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewStopOrderRequest(2, "ABC", 12, LocalDateTime.now(),
+                Side.BUY, 10, 15500, 5, shareholder.getShareholderId(), 0, 0, 16000));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(3, "ABC", 14, LocalDateTime.now(),
+                Side.SELL, 30, 16000, 5, shareholder.getShareholderId(), 0, 0));
+        assertThat(broker.getCredit()).isEqualTo(10_000_000 - 1_500_000 - 155_000);
+        clearInvocations(eventPublisher);
+
+        orderHandler.handleMassCancel(new MassCancelRq(20, "ABC", Side.BUY, 5, 0));
+
+        verify(eventPublisher).publishMany(List.of(new OrdersCancelledEvent(20, List.of(11L, 12L))));
+        assertThat(broker.getCredit()).isEqualTo(10_000_000);
+        assertThat(security.getOrderBook().getBuyQueue()).containsExactly(otherBrokerBuy);
+        assertThat(security.getOrderBook().getSellQueue()).extracting(Order::getOrderId).containsExactly(14L);
+        assertThat(security.getStopLimitOrderList().getBuyQueue()).isEmpty();
+    }
+
+    @Test
+    void mass_cancel_without_criteria_is_rejected() {
+        orderHandler.handleMassCancel(new MassCancelRq(21, null, null, 0, 0));
+        verify(eventPublisher).publish(new OrderRejectedEvent(21, 0, List.of(Message.MASS_CANCEL_WITHOUT_CRITERIA)));
+    }
 }
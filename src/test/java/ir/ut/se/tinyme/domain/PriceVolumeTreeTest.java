@@ -0,0 +1,36 @@
+package ir.ut.se.tinyme.domain;
+
+import ir.ut.se.tinyme.domain.entity.PriceVolumeTree;
+import ir.ut.se.tinyme.domain.entity.Side;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceVolumeTreeTest {
+    @Test
+    void prunes_prices_whose_volume_drops_to_zero() {
+        PriceVolumeTree tree = new PriceVolumeTree();
+        tree.add(Side.BUY, 15700, 300);
+        tree.add(Side.SELL, 15800, 100);
+        int size = tree.size();
+
+        for (int price = 1; price <= 10_000; price++) {
+            tree.add(Side.BUY, price * 10, 50);
+            tree.add(Side.SELL, price * 10 + 5, 20);
+            tree.add(Side.BUY, price * 10, -50);
+            tree.add(Side.SELL, price * 10 + 5, -20);
+        }
+
+        assertThat(tree.size()).isEqualTo(size);
+        assertThat(tree.total(Side.BUY)).isEqualTo(300);
+        assertThat(tree.total(Side.SELL)).isEqualTo(100);
+        assertThat(tree.volumeAtOrBelow(Side.BUY, 15699)).isEqualTo(0);
+        assertThat(tree.volumeAtOrBelow(Side.BUY, 15700)).isEqualTo(300);
+        assertThat(tree.lowestPriceReaching(Side.SELL, 100)).isEqualTo(15800);
+
+        tree.add(Side.BUY, 15700, -300);
+        tree.add(Side.SELL, 15800, -100);
+        assertThat(tree.size()).isEqualTo(1);
+        assertThat(tree.lowestPriceReachingCombined(1)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,81 @@
+package ir.ut.se.tinyme.domain;
+
+import ir.ut.se.tinyme.domain.entity.Security;
+import ir.ut.se.tinyme.domain.entity.Shareholder;
+import ir.ut.se.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShareholderTest {
+    @Test
+    void keeps_a_separate_position_for_each_security() {
+        SecurityRepository securityRepository = new SecurityRepository();
+        Security security = Security.builder().isin("ABC").build();
+        Security other = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(security);
+        securityRepository.addSecurity(other);
+        Shareholder shareholder = Shareholder.builder().build();
+
+        shareholder.incPosition(security, 300);
+        shareholder.incPosition(other, 50);
+        shareholder.decPosition(security, 100);
+
+        assertThat(shareholder.hasEnoughPositionsOn(security, 200)).isTrue();
+        assertThat(shareholder.hasEnoughPositionsOn(security, 201)).isFalse();
+        assertThat(shareholder.getPositions()).isEqualTo(Map.of(security, 200, other, 50));
+        assertThatThrownBy(() -> shareholder.decPosition(other, 51)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(shareholder.getPositions().get(other)).isEqualTo(50);
+    }
+
+    @Test
+    void updates_positions_of_different_securities_from_concurrent_threads() throws InterruptedException {
+        SecurityRepository securityRepository = new SecurityRepository();
+        Shareholder shareholder = Shareholder.builder().build();
+        List<Security> securities = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Security security = Security.builder().isin("S" + i).build();
+            securityRepository.addSecurity(security);
+            securities.add(security);
+            shareholder.incPosition(security, 10_000);
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    shareholder.incPosition(security, 2);
+                    shareholder.decPosition(security, 1);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+
+        for (Security security : securities)
+            assertThat(shareholder.getPositions().get(security)).isEqualTo(20_000);
+    }
+
+    @Test
+    void reuses_security_indexes_when_the_repository_reloads() {
+        SecurityRepository securityRepository = new SecurityRepository();
+        Security security = Security.builder().isin("ABC").build();
+        Security other = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(security);
+        securityRepository.addSecurity(other);
+        Security reloaded = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(reloaded);
+
+        assertThat(security.getIndex()).isEqualTo(0);
+        assertThat(other.getIndex()).isEqualTo(1);
+        assertThat(reloaded.getIndex()).isEqualTo(0);
+
+        securityRepository.clear();
+        Security afterClear = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(afterClear);
+        assertThat(afterClear.getIndex()).isEqualTo(0);
+    }
+}
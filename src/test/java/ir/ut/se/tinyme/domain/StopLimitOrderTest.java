@@ -306,6 +306,35 @@ public class StopLimitOrderTest {
         assertThat(security.getStopLimitOrderList().getSellQueue().get(3).getOrderId()).isEqualTo(11);
     }
 
+    @Test
+    void inactive_stop_limit_order_is_reordered_when_its_stop_price_is_updated(){
+        mockOrderHandler.handleEnterOrder(EnterOrderRq.createNewStopOrderRequest(1, security.getIsin(), 14,
+                LocalDateTime.now(), Side.SELL, 5, 15820, broker.getBrokerId(),
+                shareholder.getShareholderId(), 0, 0, 5));
+        mockOrderHandler.handleEnterOrder(EnterOrderRq.createNewStopOrderRequest(2, security.getIsin(), 11,
+                LocalDateTime.now(), Side.SELL, 3, 15820, broker.getBrokerId(),
+                shareholder.getShareholderId(), 0, 0, 1));
+        mockOrderHandler.handleEnterOrder(EnterOrderRq.createNewStopOrderRequest(3, security.getIsin(), 12,
+                LocalDateTime.now(), Side.SELL, 4, 15820, broker.getBrokerId(),
+                shareholder.getShareholderId(), 0, 0, 2));
+        mockOrderHandler.handleEnterOrder(EnterOrderRq.createUpdateStopLimitOrderRq(4, security.getIsin(), 11,
+                LocalDateTime.now(), Side.SELL, 3, 15820, broker.getBrokerId(),
+                shareholder.getShareholderId(), 0, 0, 8));
+
+        assertThat(security.getStopLimitOrderList().getSellQueue())
+                .extracting(Order::getOrderId).containsExactly(11L, 14L, 12L);
+    }
+
+    @Test
+    void deleted_inactive_stop_limit_order_is_removed_from_the_stop_limit_order_list(){
+        mockOrderHandler.handleEnterOrder(EnterOrderRq.createNewStopOrderRequest(1, security.getIsin(), 14,
+                LocalDateTime.now(), Side.SELL, 5, 15820, broker.getBrokerId(),
+                shareholder.getShareholderId(), 0, 0, 5));
+        mockOrderHandler.handleDeleteOrder(new DeleteOrderRq(2, security.getIsin(), Side.SELL, 14));
+
+        assertThat(security.getStopLimitOrderList().getSellQueue()).isEmpty();
+    }
+
     @Test
     void inactive_stop_limit_order_list_buy_sort_function_test(){
         mockOrderHandler.handleEnterOrder(EnterOrderRq.createNewStopOrderRequest(4, security.getIsin(), 14,
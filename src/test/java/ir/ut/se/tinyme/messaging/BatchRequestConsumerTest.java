@@ -0,0 +1,107 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.domain.entity.Side;
+import ir.ut.se.tinyme.messaging.request.DeleteOrderRq;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BatchRequestConsumerTest {
+    @Test
+    void handles_up_to_the_batch_size_in_order_and_commits_once_per_batch() throws Exception {
+        MessageConverter converter = mock(MessageConverter.class);
+        RequestDispatcher dispatcher = mock(RequestDispatcher.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        Session session = mock(Session.class);
+        MessageConsumer consumer = mock(MessageConsumer.class);
+        Message[] messages = new Message[5];
+        DeleteOrderRq[] requests = new DeleteOrderRq[5];
+        for (int i = 0; i < 5; i++) {
+            messages[i] = mock(Message.class);
+            requests[i] = new DeleteOrderRq(i, "ABC", Side.BUY, i);
+            when(converter.fromMessage(messages[i])).thenReturn(requests[i]);
+        }
+        when(consumer.receive(anyLong())).thenReturn(messages[0], messages[3], null);
+        when(consumer.receiveNoWait()).thenReturn(messages[1], messages[2], messages[4], null);
+        doThrow(new IllegalStateException("boom")).when(dispatcher).receive(requests[1]);
+        when(eventPublisher.awaitPublished()).thenReturn(true);
+
+        BatchRequestConsumer batchConsumer = new BatchRequestConsumer(mock(ConnectionFactory.class), converter,
+                dispatcher, new ShardedRequestExecutor(false, 1), eventPublisher, "RQ", false, 3);
+
+        assertThat(batchConsumer.consumeBatch(session, consumer)).isEqualTo(3);
+        assertThat(batchConsumer.consumeBatch(session, consumer)).isEqualTo(2);
+        assertThat(batchConsumer.consumeBatch(session, consumer)).isEqualTo(0);
+
+        InOrder inOrder = inOrder(dispatcher, eventPublisher, session);
+        for (int i = 0; i < 3; i++)
+            inOrder.verify(dispatcher).receive(requests[i]);
+        inOrder.verify(eventPublisher).awaitPublished();
+        inOrder.verify(session).commit();
+        for (int i = 3; i < 5; i++)
+            inOrder.verify(dispatcher).receive(requests[i]);
+        inOrder.verify(eventPublisher).awaitPublished();
+        inOrder.verify(session).commit();
+        verify(session, times(2)).commit();
+        verify(session, never()).rollback();
+    }
+
+    @Test
+    void commits_an_applied_batch_and_stops_consuming_when_its_events_failed_to_publish() throws Exception {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        MessageConverter converter = mock(MessageConverter.class);
+        RequestDispatcher dispatcher = mock(RequestDispatcher.class);
+        EventPublisher eventPublisher = mock(EventPublisher.class);
+        Session session = mock(Session.class);
+        MessageConsumer consumer = mock(MessageConsumer.class);
+        Message message = mock(Message.class);
+        DeleteOrderRq request = new DeleteOrderRq(1, "ABC", Side.BUY, 1);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(true, Session.SESSION_TRANSACTED)).thenReturn(session);
+        when(session.createConsumer(any())).thenReturn(consumer);
+        when(converter.fromMessage(message)).thenReturn(request);
+        when(consumer.receive(anyLong())).thenReturn(message);
+        when(eventPublisher.awaitPublished()).thenReturn(false);
+
+        BatchRequestConsumer batchConsumer = new BatchRequestConsumer(connectionFactory, converter,
+                dispatcher, new ShardedRequestExecutor(false, 1), eventPublisher, "RQ", true, 1);
+        batchConsumer.start();
+        verify(connection, timeout(1000)).close();
+
+        assertThat(batchConsumer.isRunning()).isFalse();
+        verify(dispatcher).receive(request);
+        verify(session).commit();
+        verify(session, never()).rollback();
+        verify(connectionFactory).createConnection();
+    }
+
+    @Test
+    void starts_consuming_only_when_the_context_starts_it() throws Exception {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.createConnection()).thenThrow(new JMSException("broker down"));
+
+        BatchRequestConsumer batchConsumer = new BatchRequestConsumer(connectionFactory, mock(MessageConverter.class),
+                mock(RequestDispatcher.class), new ShardedRequestExecutor(false, 1), mock(EventPublisher.class),
+                "RQ", true, 1);
+        verify(connectionFactory, never()).createConnection();
+        assertThat(batchConsumer.isRunning()).isFalse();
+
+        batchConsumer.start();
+        verify(connectionFactory, timeout(1000)).createConnection();
+        assertThat(batchConsumer.isRunning()).isTrue();
+        batchConsumer.stop();
+        assertThat(batchConsumer.isRunning()).isFalse();
+    }
+}
@@ -0,0 +1,132 @@
+package ir.ut.se.tinyme.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ut.se.tinyme.domain.entity.Side;
+import ir.ut.se.tinyme.messaging.codec.BinaryCodec;
+import ir.ut.se.tinyme.messaging.codec.WireFormatMessageConverter;
+import ir.ut.se.tinyme.messaging.event.*;
+import ir.ut.se.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.BatchOperation;
+import ir.ut.se.tinyme.messaging.request.DeleteOrderRq;
+import ir.ut.se.tinyme.messaging.request.EnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.MassCancelRq;
+import ir.ut.se.tinyme.messaging.request.MatcherState;
+import ir.ut.se.tinyme.messaging.request.MatchingStateRq;
+import jakarta.jms.BytesMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BinaryCodecTest {
+    private Object roundTrip(Object payload) {
+        ByteBuffer encoded = BinaryCodec.encode(payload);
+        return BinaryCodec.decode(ByteBuffer.wrap(encoded.array(), 0, encoded.limit()));
+    }
+
+    @Test
+    void round_trips_every_request_type() {
+        LocalDateTime entryTime = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123456789);
+        EnterOrderRq enter = EnterOrderRq.createNewStopOrderRequest(1, "ABC", 200, entryTime, Side.BUY,
+                300, 15450, 2, 3, 0, 10, 15500);
+        EnterOrderRq update = EnterOrderRq.createUpdateOrderRq(2, "ABC", 200, null, Side.SELL,
+                100, 15400, 2, 3, 50, 0);
+        DeleteOrderRq delete = new DeleteOrderRq(3, "ABC", Side.SELL, 200, entryTime);
+        MatchingStateRq state = MatchingStateRq.CreateNewMatchingStateRq("ABC", MatcherState.AUCTION);
+
+        assertThat(roundTrip(enter)).isEqualTo(enter);
+        assertThat(roundTrip(update)).isEqualTo(update);
+        assertThat(roundTrip(delete)).isEqualTo(delete);
+        assertThat(roundTrip(state)).isEqualTo(state);
+        BatchEnterOrderRq batch = new BatchEnterOrderRq(4, List.of(BatchOperation.enter(enter),
+                BatchOperation.delete(delete), new BatchOperation(), BatchOperation.enter(update)));
+        assertThat(roundTrip(batch)).isEqualTo(batch);
+        MassCancelRq massCancel = new MassCancelRq(5, null, Side.BUY, 2, 0);
+        assertThat(roundTrip(massCancel)).isEqualTo(massCancel);
+    }
+
+    @Test
+    void round_trips_missing_batch_operations_and_strings_longer_than_a_short() {
+        BatchEnterOrderRq withoutOperations = new BatchEnterOrderRq(1, null);
+        BatchEnterOrderRq withNullOperation = new BatchEnterOrderRq(2, Arrays.asList(
+                BatchOperation.delete(new DeleteOrderRq(3, "ABC", Side.SELL, 200)), null));
+        String longIsin = "A".repeat(40_000);
+        DeleteOrderRq longString = new DeleteOrderRq(4, longIsin, Side.BUY, 300);
+
+        assertThat(roundTrip(withoutOperations)).isEqualTo(withoutOperations);
+        assertThat(roundTrip(withNullOperation)).isEqualTo(withNullOperation);
+        assertThat(((DeleteOrderRq) roundTrip(longString)).getSecurityIsin()).isEqualTo(longIsin);
+    }
+
+    @Test
+    void rejects_a_string_length_beyond_the_encoded_bytes() {
+        ByteBuffer encoded = BinaryCodec.encode(new DeleteOrderRq(1, "ABC", Side.BUY, 200));
+        ByteBuffer corrupted = ByteBuffer.wrap(Arrays.copyOf(encoded.array(), encoded.limit()));
+        corrupted.putInt(1 + 8, Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> BinaryCodec.decode(corrupted)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void round_trips_event_lists_with_their_times_in_fewer_bytes_than_json() throws Exception {
+        List<TradeDTO> trades = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            trades.add(new TradeDTO("ABC", 15700 + i, 100, 200, 100 + i));
+        List<Event> events = List.of(
+                new OrderAcceptedEvent(1, 200),
+                new OrderActivatedEvent(1, 201),
+                new OrderUpdatedEvent(2, 200),
+                new OrderDeletedEvent(3, 200),
+                new OrderExecutedEvent(1, 200, trades),
+                new OrderRejectedEvent(4, 300, List.of("not enough credit", "سفارش نامعتبر")),
+                new TradeEvent("ABC", 15700, 100, 200, 100),
+                new OpeningPriceEvent("ABC", 15700, 300),
+                new SecurityStateChangedEvent("ABC", MatcherState.CONTINUOUS),
+                new OrdersCancelledEvent(5, List.of(200L, 201L, 202L)),
+                new MarketDataDeltaEvent("ABC", 7, List.of(new LevelDTO(Side.BUY, LevelAction.CHANGE, 15700, 500, 2),
+                        new LevelDTO(Side.SELL, LevelAction.DELETE, 15800, 0, 0))),
+                new MarketDataSnapshotEvent("ABC", 7, List.of(new LevelDTO(Side.BUY, LevelAction.ADD, 15700, 500, 2)))
+        );
+
+        ByteBuffer encoded = BinaryCodec.encodeAll(events);
+        int size = encoded.limit();
+        @SuppressWarnings("unchecked")
+        List<Event> decoded = (List<Event>) BinaryCodec.decode(ByteBuffer.wrap(encoded.array(), 0, size));
+
+        assertThat(decoded).containsExactlyElementsOf(events);
+        assertThat(decoded).extracting(Event::getTime).containsExactlyElementsOf(events.stream().map(Event::getTime).toList());
+        assertThat(size).isLessThan(new ObjectMapper().writeValueAsBytes(events).length / 2);
+    }
+
+    @Test
+    void decodes_only_bytes_messages_marked_as_binary_and_leaves_json_bytes_to_jackson() throws Exception {
+        MessageConverter jsonConverter = mock(MessageConverter.class);
+        WireFormatMessageConverter converter = new WireFormatMessageConverter(jsonConverter, false);
+        DeleteOrderRq delete = new DeleteOrderRq(3, "ABC", Side.SELL, 200);
+        ByteBuffer encoded = BinaryCodec.encode(delete);
+        byte[] body = Arrays.copyOf(encoded.array(), encoded.limit());
+        BytesMessage binaryMessage = mock(BytesMessage.class);
+        when(binaryMessage.getStringProperty(WireFormatMessageConverter.WIRE_FORMAT_PROPERTY))
+                .thenReturn(WireFormatMessageConverter.BINARY_WIRE_FORMAT);
+        when(binaryMessage.getBodyLength()).thenReturn((long) body.length);
+        when(binaryMessage.readBytes(any(byte[].class))).thenAnswer(invocation -> {
+            System.arraycopy(body, 0, invocation.getArgument(0), 0, body.length);
+            return body.length;
+        });
+        BytesMessage jsonMessage = mock(BytesMessage.class);
+        when(jsonConverter.fromMessage(jsonMessage)).thenReturn(delete);
+
+        assertThat(converter.fromMessage(binaryMessage)).isEqualTo(delete);
+        assertThat(converter.fromMessage(jsonMessage)).isEqualTo(delete);
+        verify(jsonConverter, never()).fromMessage(binaryMessage);
+    }
+}
@@ -0,0 +1,170 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.messaging.event.Event;
+import ir.ut.se.tinyme.messaging.event.OrderAcceptedEvent;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.destination.DynamicDestinationResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EventPublisherBatchTest {
+    @Test
+    void sends_events_queued_behind_a_slow_send_in_one_transacted_session() throws Exception {
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        Queue queue = mock(Queue.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        MessageConverter converter = mock(MessageConverter.class);
+        List<Object> sent = new ArrayList<>();
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getDestinationResolver()).thenReturn(new DynamicDestinationResolver());
+        when(jmsTemplate.getMessageConverter()).thenReturn(converter);
+        when(connection.createSession(eq(true), anyInt())).thenReturn(session);
+        when(session.createQueue("RS")).thenReturn(queue);
+        when(session.createProducer(queue)).thenReturn(producer);
+        when(converter.toMessage(any(), eq(session))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return mock(Message.class);
+        });
+
+        CountDownLatch firstSendStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSend = new CountDownLatch(1);
+        when(connectionFactory.createConnection()).thenAnswer(invocation -> {
+            firstSendStarted.countDown();
+            releaseFirstSend.await();
+            return connection;
+        });
+
+        EventPublisher publisher = new EventPublisher(jmsTemplate, new EventSerializer(), "RS", true, false, 16, 64, false, 0);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            events.add(new OrderAcceptedEvent(i, i));
+
+        publisher.publish(events.get(0));
+        firstSendStarted.await();
+        for (Event event : events.subList(1, events.size()))
+            publisher.publish(event);
+        releaseFirstSend.countDown();
+        publisher.shutdown();
+
+        verify(connection, times(2)).createSession(eq(true), anyInt());
+        verify(producer, times(10)).send(any(Message.class));
+        verify(session, times(2)).commit();
+        verify(producer, times(2)).close();
+        verify(jmsTemplate, never()).send(any(String.class), any());
+        assertThat(sent).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    void reports_a_flush_that_keeps_failing_once_to_the_next_caller_waiting_for_it() throws Exception {
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getDestinationResolver()).thenReturn(new DynamicDestinationResolver());
+        when(connectionFactory.createConnection()).thenThrow(new JMSException("broker down"));
+
+        EventPublisher publisher = new EventPublisher(jmsTemplate, new EventSerializer(), "RS", true, false, 16, 64, false, 0);
+        publisher.publish(new OrderAcceptedEvent(1, 1));
+
+        assertThat(publisher.awaitPublished()).isFalse();
+        assertThat(publisher.awaitPublished()).isTrue();
+        verify(connectionFactory, times(3)).createConnection();
+        publisher.shutdown();
+    }
+
+    @Test
+    void retries_a_failed_flush_with_the_same_events() throws Exception {
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        Queue queue = mock(Queue.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        MessageConverter converter = mock(MessageConverter.class);
+        List<Object> sent = new ArrayList<>();
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getDestinationResolver()).thenReturn(new DynamicDestinationResolver());
+        when(jmsTemplate.getMessageConverter()).thenReturn(converter);
+        when(connectionFactory.createConnection()).thenThrow(new JMSException("broker down")).thenReturn(connection);
+        when(connection.createSession(eq(true), anyInt())).thenReturn(session);
+        when(session.createQueue("RS")).thenReturn(queue);
+        when(session.createProducer(queue)).thenReturn(producer);
+        when(converter.toMessage(any(), eq(session))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return mock(Message.class);
+        });
+
+        EventPublisher publisher = new EventPublisher(jmsTemplate, new EventSerializer(), "RS", true, false, 16, 64, false, 0);
+        OrderAcceptedEvent event = new OrderAcceptedEvent(1, 1);
+        publisher.publish(event);
+
+        assertThat(publisher.awaitPublished()).isTrue();
+        verify(session).commit();
+        assertThat(sent).containsExactly(event);
+        publisher.shutdown();
+    }
+
+    @Test
+    void sends_events_for_other_destinations_in_the_same_transacted_batch() throws Exception {
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        Queue responses = mock(Queue.class);
+        Queue marketData = mock(Queue.class);
+        MessageProducer responseProducer = mock(MessageProducer.class);
+        MessageProducer marketDataProducer = mock(MessageProducer.class);
+        MessageConverter converter = mock(MessageConverter.class);
+        when(jmsTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(jmsTemplate.getDestinationResolver()).thenReturn(new DynamicDestinationResolver());
+        when(jmsTemplate.getMessageConverter()).thenReturn(converter);
+        when(connection.createSession(eq(true), anyInt())).thenReturn(session);
+        when(session.createQueue("RS")).thenReturn(responses);
+        when(session.createQueue("MD")).thenReturn(marketData);
+        when(session.createProducer(responses)).thenReturn(responseProducer);
+        when(session.createProducer(marketData)).thenReturn(marketDataProducer);
+        when(converter.toMessage(any(), eq(session))).thenAnswer(invocation -> mock(Message.class));
+
+        CountDownLatch firstSendStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSend = new CountDownLatch(1);
+        when(connectionFactory.createConnection()).thenAnswer(invocation -> {
+            firstSendStarted.countDown();
+            releaseFirstSend.await();
+            return connection;
+        });
+
+        EventPublisher publisher = new EventPublisher(jmsTemplate, new EventSerializer(), "RS", true, false, 16, 64, false, 0);
+        publisher.publish(new OrderAcceptedEvent(1, 1));
+        firstSendStarted.await();
+        publisher.publish(new OrderAcceptedEvent(2, 2));
+        publisher.publishTo("MD", new OrderAcceptedEvent(3, 3));
+        publisher.publish(new OrderAcceptedEvent(4, 4));
+        releaseFirstSend.countDown();
+        publisher.shutdown();
+
+        verify(session, times(2)).commit();
+        verify(responseProducer, times(3)).send(any(Message.class));
+        verify(marketDataProducer).send(any(Message.class));
+        verify(session, times(1)).createProducer(marketData);
+        verify(jmsTemplate, never()).send(any(String.class), any());
+    }
+}
@@ -0,0 +1,41 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.messaging.event.Event;
+import ir.ut.se.tinyme.messaging.event.OrderAcceptedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRingTest {
+    @Test
+    void delivers_events_in_order_and_blocks_producers_while_full() throws InterruptedException {
+        EventRing ring = new EventRing(4);
+        List<Event> consumed = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                boolean open = true;
+                while (open)
+                    open = ring.consume((slot, endOfBatch) -> consumed.add(slot.event()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+
+        List<Event> produced = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Event event = new OrderAcceptedEvent(i, i);
+            produced.add(event);
+            assertThat(ring.put(event, null)).isTrue();
+        }
+        ring.close();
+        consumer.join();
+
+        assertThat(ring.capacity()).isEqualTo(4);
+        assertThat(consumed).containsExactlyElementsOf(produced);
+        assertThat(ring.put(new OrderAcceptedEvent(100, 100), null)).isFalse();
+    }
+}
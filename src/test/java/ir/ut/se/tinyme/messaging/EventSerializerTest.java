@@ -0,0 +1,28 @@
+package ir.ut.se.tinyme.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ut.se.tinyme.messaging.event.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSerializerTest {
+    @Test
+    void writes_mixed_events_exactly_like_a_fresh_object_mapper() throws Exception {
+        EventSerializer serializer = new EventSerializer();
+        List<Event> events = List.of(
+                new OrderAcceptedEvent(1, 200),
+                new TradeEvent("ABC", 15700, 300, 200, 100),
+                new OrderExecutedEvent(1, 200, List.of(new TradeDTO("ABC", 15700, 300, 200, 100))),
+                new OrderRejectedEvent(2, 300, List.of("rejected"))
+        );
+
+        String expected = new ObjectMapper().writeValueAsString(events);
+
+        assertThat(serializer.writeAll(events)).isEqualTo(expected);
+        assertThat(serializer.writeAll(events.subList(0, 1)))
+                .isEqualTo(new ObjectMapper().writeValueAsString(events.subList(0, 1)));
+    }
+}
@@ -0,0 +1,226 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.domain.entity.Broker;
+import ir.ut.se.tinyme.domain.entity.Order;
+import ir.ut.se.tinyme.domain.entity.OrderBook;
+import ir.ut.se.tinyme.domain.entity.Security;
+import ir.ut.se.tinyme.domain.entity.Shareholder;
+import ir.ut.se.tinyme.domain.entity.Side;
+import ir.ut.se.tinyme.messaging.event.MarketDataDeltaEvent;
+import ir.ut.se.tinyme.messaging.event.MarketDataSnapshotEvent;
+import ir.ut.se.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MarketDataPublisherTest {
+    private EventPublisher eventPublisher;
+    private SecurityRepository securityRepository;
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private final List<Object> published = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setup() {
+        eventPublisher = mock(EventPublisher.class);
+        doAnswer(invocation -> published.add(invocation.getArgument(1)))
+                .when(eventPublisher).publishTo(eq("MD"), any());
+
+        security = Security.builder().isin("ABC").build();
+        securityRepository = new SecurityRepository();
+        securityRepository.addSecurity(security);
+        broker = Broker.builder().build();
+        shareholder = Shareholder.builder().build();
+        enqueue(1, Side.BUY, 300, 15700);
+    }
+
+    private void enqueue(long orderId, Side side, int quantity, int price) {
+        security.getOrderBook().enqueue(Order.builder().orderId(orderId).security(security).side(side)
+                .quantity(quantity).price(price).broker(broker).shareholder(shareholder).build());
+    }
+
+    @Test
+    void publishes_a_snapshot_then_sequenced_deltas_of_the_levels_that_changed() {
+        MarketDataPublisher publisher = new MarketDataPublisher(eventPublisher, securityRepository,
+                new ShardedRequestExecutor(false, 1), "MD", true, 3_600_000);
+        OrderBook orderBook = security.getOrderBook();
+
+        publisher.publishChanges("ABC");
+        enqueue(2, Side.BUY, 200, 15700);
+        enqueue(3, Side.SELL, 100, 15800);
+        publisher.publishChanges("ABC");
+        orderBook.removeByOrderId(Side.BUY, 1);
+        orderBook.removeByOrderId(Side.BUY, 2);
+        enqueue(4, Side.BUY, 50, 15600);
+        orderBook.removeByOrderId(Side.SELL, 3);
+        enqueue(3, Side.SELL, 100, 15800);
+        publisher.publishChanges("ABC");
+        publisher.publishAllChanges();
+
+        assertThat(published).containsExactly(
+                new MarketDataSnapshotEvent("ABC", 0, List.of(
+                        new LevelDTO(Side.BUY, LevelAction.ADD, 15700, 300, 1))),
+                new MarketDataDeltaEvent("ABC", 1, List.of(
+                        new LevelDTO(Side.BUY, LevelAction.CHANGE, 15700, 500, 2),
+                        new LevelDTO(Side.SELL, LevelAction.ADD, 15800, 100, 1))),
+                new MarketDataDeltaEvent("ABC", 2, List.of(
+                        new LevelDTO(Side.BUY, LevelAction.DELETE, 15700, 0, 0),
+                        new LevelDTO(Side.BUY, LevelAction.ADD, 15600, 50, 1))));
+    }
+
+    @Test
+    void publishes_nothing_when_the_feed_is_disabled() {
+        MarketDataPublisher publisher = new MarketDataPublisher(eventPublisher, securityRepository,
+                new ShardedRequestExecutor(false, 1), "MD", false, 3_600_000);
+
+        publisher.publishChanges("ABC");
+        enqueue(2, Side.SELL, 100, 15800);
+        publisher.publishAllChanges();
+
+        assertThat(published).isEmpty();
+        assertThat(security.getOrderBook().drainChanges()).isEmpty();
+    }
+
+    @Test
+    void keeps_publishing_snapshots_of_an_idle_book_on_its_shard_once_started() throws InterruptedException {
+        ShardedRequestExecutor executor = new ShardedRequestExecutor(true, 2);
+        MarketDataPublisher publisher = new MarketDataPublisher(eventPublisher, securityRepository, executor, "MD", true, 20);
+        MarketDataSnapshotEvent snapshot = new MarketDataSnapshotEvent("ABC", 0, List.of(
+                new LevelDTO(Side.BUY, LevelAction.ADD, 15700, 300, 1)));
+
+        publisher.start();
+        try {
+            verify(eventPublisher, timeout(2000).atLeast(2)).publishTo("MD", snapshot);
+        } finally {
+            publisher.stop();
+            executor.shutdown();
+        }
+
+        assertThat(publisher.isRunning()).isFalse();
+    }
+
+    @Test
+    void sends_pending_deltas_before_a_scheduled_snapshot() throws InterruptedException {
+        ShardedRequestExecutor executor = new ShardedRequestExecutor(true, 2);
+        MarketDataPublisher publisher = new MarketDataPublisher(eventPublisher, securityRepository, executor, "MD", true, 3_600_000);
+        publisher.publishChanges("ABC");
+        enqueue(2, Side.SELL, 100, 15800);
+
+        publisher.start();
+        try {
+            verify(eventPublisher, timeout(2000).times(3)).publishTo(eq("MD"), any());
+        } finally {
+            publisher.stop();
+            executor.shutdown();
+        }
+
+        assertThat(published).containsExactly(
+                new MarketDataSnapshotEvent("ABC", 0, List.of(
+                        new LevelDTO(Side.BUY, LevelAction.ADD, 15700, 300, 1))),
+                new MarketDataDeltaEvent("ABC", 1, List.of(
+                        new LevelDTO(Side.SELL, LevelAction.ADD, 15800, 100, 1))),
+                new MarketDataSnapshotEvent("ABC", 1, List.of(
+                        new LevelDTO(Side.BUY, LevelAction.ADD, 15700, 300, 1),
+                        new LevelDTO(Side.SELL, LevelAction.ADD, 15800, 100, 1))));
+    }
+
+    @Test
+    void a_feed_rebuilt_from_snapshots_and_deltas_sent_while_requests_run_matches_the_book() throws InterruptedException {
+        ShardedRequestExecutor executor = new ShardedRequestExecutor(true, 2);
+        MarketDataPublisher publisher = new MarketDataPublisher(eventPublisher, securityRepository, executor, "MD", true, 1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        publisher.start();
+        try {
+            for (int i = 2; i < 2000; i++) {
+                long orderId = i;
+                executor.execute("ABC", () -> {
+                    try {
+                        enqueue(orderId, sideOf(orderId), 100, priceOf(orderId));
+                        if (orderId % 4 == 0)
+                            security.getOrderBook().removeByOrderId(sideOf(orderId - 2), orderId - 2);
+                        publisher.publishChanges("ABC");
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+            }
+            executor.awaitIdle();
+        } finally {
+            publisher.stop();
+            executor.shutdown();
+        }
+
+        assertThat(failures).isEmpty();
+        assertThat(published).hasAtLeastOneElementOfType(MarketDataDeltaEvent.class);
+        Map<Side, Map<Integer, LevelDTO>> rebuilt = new EnumMap<>(Side.class);
+        long sequence = 0;
+        int snapshots = 0;
+        for (Object event : published) {
+            if (event instanceof MarketDataSnapshotEvent snapshot) {
+                assertThat(snapshot.getSequence()).isEqualTo(sequence);
+                rebuilt.clear();
+                snapshot.getLevels().forEach(level -> apply(rebuilt, level));
+                snapshots++;
+            } else {
+                MarketDataDeltaEvent delta = (MarketDataDeltaEvent) event;
+                assertThat(delta.getSequence()).isEqualTo(++sequence);
+                delta.getLevels().forEach(level -> apply(rebuilt, level));
+            }
+        }
+        assertThat(snapshots).isGreaterThan(1);
+        for (Side side : Side.values()) {
+            Map<Integer, LevelDTO> levels = rebuilt.getOrDefault(side, Map.of());
+            assertThat(security.getOrderBook().getDepth(side, Integer.MAX_VALUE)).allSatisfy(depthLevel -> {
+                LevelDTO level = levels.get(depthLevel.price());
+                assertThat(level.quantity()).isEqualTo(depthLevel.quantity());
+                assertThat(level.orderCount()).isEqualTo(depthLevel.orderCount());
+            });
+            assertThat(levels).hasSize(security.getOrderBook().getDepth(side, Integer.MAX_VALUE).size());
+        }
+    }
+
+    @Test
+    void takes_due_snapshots_from_the_request_path_when_matching_is_not_sharded() throws InterruptedException {
+        MarketDataPublisher publisher = new MarketDataPublisher(eventPublisher, securityRepository,
+                new ShardedRequestExecutor(false, 1), "MD", true, 1);
+        publisher.start();
+        assertThat(publisher.isRunning()).isFalse();
+
+        publisher.publishChanges("ABC");
+        Thread.sleep(5);
+        publisher.publishChanges("ABC");
+
+        MarketDataSnapshotEvent snapshot = new MarketDataSnapshotEvent("ABC", 0, List.of(
+                new LevelDTO(Side.BUY, LevelAction.ADD, 15700, 300, 1)));
+        assertThat(published).hasSizeGreaterThanOrEqualTo(2).containsOnly(snapshot);
+    }
+
+    private static Side sideOf(long orderId) {
+        return orderId % 2 == 0 ? Side.BUY : Side.SELL;
+    }
+
+    private static int priceOf(long orderId) {
+        return (orderId % 2 == 0 ? 15000 : 16000) + (int) (orderId % 7) * 10;
+    }
+
+    private static void apply(Map<Side, Map<Integer, LevelDTO>> book, LevelDTO level) {
+        Map<Integer, LevelDTO> levels = book.computeIfAbsent(level.side(), side -> new HashMap<>());
+        if (level.action() == LevelAction.DELETE)
+            levels.remove(level.price());
+        else
+            levels.put(level.price(), level);
+    }
+}
@@ -0,0 +1,93 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.messaging.event.Event;
+import ir.ut.se.tinyme.messaging.event.OpeningPriceEvent;
+import ir.ut.se.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ut.se.tinyme.messaging.event.SecurityStateChangedEvent;
+import ir.ut.se.tinyme.messaging.request.MatcherState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpeningPriceConflatorTest {
+    @Test
+    void suppresses_opening_prices_that_did_not_change_until_the_auction_ends() {
+        List<List<Event>> published = new ArrayList<>();
+        OpeningPriceConflator conflator = new OpeningPriceConflator(0, published::add);
+
+        conflator.offer(List.of(new OpeningPriceEvent("ABC", 15700, 300)), published::add);
+        conflator.offer(List.of(new OrderAcceptedEvent(2, 12), new OpeningPriceEvent("ABC", 15700, 300)), published::add);
+        conflator.offer(List.of(new OpeningPriceEvent("ABC", 15700, 300)), published::add);
+        conflator.offer(List.of(new OpeningPriceEvent("ABC", 15700, 400)), published::add);
+        conflator.offer(List.of(new SecurityStateChangedEvent("ABC", MatcherState.CONTINUOUS)), published::add);
+        conflator.offer(List.of(new OpeningPriceEvent("ABC", 15700, 400)), published::add);
+
+        assertThat(published).containsExactly(
+                List.of(new OpeningPriceEvent("ABC", 15700, 300)),
+                List.of(new OrderAcceptedEvent(2, 12)),
+                List.of(new OpeningPriceEvent("ABC", 15700, 400)),
+                List.of(new SecurityStateChangedEvent("ABC", MatcherState.CONTINUOUS)),
+                List.of(new OpeningPriceEvent("ABC", 15700, 400))
+        );
+    }
+
+    @Test
+    void coalesces_opening_prices_per_security_and_drops_them_when_the_auction_ends() {
+        List<List<Event>> flushed = new ArrayList<>();
+        List<List<Event>> published = new ArrayList<>();
+        OpeningPriceConflator conflator = new OpeningPriceConflator(3_600_000, flushed::add);
+
+        conflator.offer(List.of(new OpeningPriceEvent("ABC", 15700, 300)), published::add);
+        conflator.offer(List.of(new OpeningPriceEvent("XYZ", 2000, 10)), published::add);
+        conflator.offer(List.of(new OrderAcceptedEvent(3, 13), new OpeningPriceEvent("ABC", 15800, 200)), published::add);
+        conflator.flush();
+        conflator.offer(List.of(new OpeningPriceEvent("ABC", 15800, 200)), published::add);
+        conflator.offer(List.of(new OpeningPriceEvent("XYZ", 2100, 10)), published::add);
+        conflator.offer(List.of(new SecurityStateChangedEvent("XYZ", MatcherState.CONTINUOUS)), published::add);
+        conflator.close();
+
+        assertThat(flushed).containsExactly(List.of(
+                new OpeningPriceEvent("ABC", 15800, 200),
+                new OpeningPriceEvent("XYZ", 2000, 10)));
+        assertThat(published).containsExactly(
+                List.of(new OrderAcceptedEvent(3, 13)),
+                List.of(new SecurityStateChangedEvent("XYZ", MatcherState.CONTINUOUS)));
+    }
+
+    @Test
+    void publishes_outside_the_lock_so_a_slow_send_does_not_block_other_offers() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<Event>> published = Collections.synchronizedList(new ArrayList<>());
+        OpeningPriceConflator conflator = new OpeningPriceConflator(3_600_000, events -> {
+            sending.countDown();
+            awaitQuietly(release);
+        });
+        conflator.offer(List.of(new OpeningPriceEvent("ABC", 15700, 300)), published::add);
+        Thread flusher = new Thread(conflator::flush);
+        flusher.start();
+        sending.await();
+
+        CompletableFuture.runAsync(() -> conflator.offer(List.of(new OrderAcceptedEvent(2, 12),
+                new OpeningPriceEvent("ABC", 15800, 300)), published::add)).get(1, TimeUnit.SECONDS);
+        release.countDown();
+        flusher.join();
+
+        assertThat(published).containsExactly(List.of(new OrderAcceptedEvent(2, 12)));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ir.ut.se.tinyme.messaging;
+
+import ir.ut.se.tinyme.domain.entity.Side;
+import ir.ut.se.tinyme.domain.service.MatcherHandler;
+import ir.ut.se.tinyme.domain.service.OrderHandler;
+import ir.ut.se.tinyme.messaging.request.BatchEnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.DeleteOrderRq;
+import ir.ut.se.tinyme.messaging.request.EnterOrderRq;
+import ir.ut.se.tinyme.messaging.request.MatcherState;
+import ir.ut.se.tinyme.messaging.request.MatchingStateRq;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RequestTypeDispatchTest {
+    @Test
+    void dispatches_requests_of_every_type_in_arrival_order() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        MatcherHandler matcherHandler = mock(MatcherHandler.class);
+        RequestDispatcher dispatcher = new RequestDispatcher(orderHandler, matcherHandler, new ShardedRequestExecutor(false, 1),
+                mock(MarketDataPublisher.class));
+        EnterOrderRq enter = EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(),
+                Side.SELL, 300, 15450, 0, 0, 0, 0);
+        MatchingStateRq state = MatchingStateRq.CreateNewMatchingStateRq("ABC", MatcherState.AUCTION);
+        DeleteOrderRq delete = new DeleteOrderRq(2, "ABC", Side.SELL, 200);
+
+        dispatcher.receive(enter);
+        dispatcher.receive(state);
+        dispatcher.receive(delete);
+        dispatcher.receive("unsupported");
+
+        InOrder inOrder = inOrder(orderHandler, matcherHandler);
+        inOrder.verify(orderHandler).handleEnterOrder(enter);
+        inOrder.verify(matcherHandler).handleMatchStateRq(state);
+        inOrder.verify(orderHandler).handleDeleteOrder(delete);
+        verifyNoMoreInteractions(orderHandler, matcherHandler);
+    }
+
+    @Test
+    void decodes_requests_sent_with_legacy_type_ids() throws Exception {
+        TextMessage message = mock(TextMessage.class);
+        when(message.getStringProperty("_type")).thenReturn("ir.ramtung.tinyme.messaging.request.DeleteOrderRq");
+        when(message.getText()).thenReturn("{\"requestId\":2,\"securityIsin\":\"ABC\",\"side\":\"SELL\",\"orderId\":200}");
+
+        Object request = new MessagingConfig().jacksonJmsMessageConverter().fromMessage(message);
+
+        assertThat(request).isEqualTo(new DeleteOrderRq(2, "ABC", Side.SELL, 200, null));
+    }
+
+    @Test
+    void hands_a_batch_without_operations_to_the_handler_to_reject() {
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        RequestDispatcher dispatcher = new RequestDispatcher(orderHandler, mock(MatcherHandler.class),
+                new ShardedRequestExecutor(false, 1), mock(MarketDataPublisher.class));
+        BatchEnterOrderRq batch = new BatchEnterOrderRq(5, null);
+
+        dispatcher.receive(batch);
+
+        verify(orderHandler).handleBatchEnterOrder(batch);
+    }
+}
@@ -0,0 +1,83 @@
+package ir.ut.se.tinyme.messaging;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedRequestExecutorTest {
+    @Test
+    void runs_requests_on_the_calling_thread_when_sharding_is_inactive() {
+        ShardedRequestExecutor executor = new ShardedRequestExecutor(false, 4);
+        List<Thread> threads = new ArrayList<>();
+        executor.execute("ABC", () -> threads.add(Thread.currentThread()));
+        assertThat(threads).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    void runs_the_requests_of_a_security_in_order_on_its_own_shard() throws InterruptedException {
+        ShardedRequestExecutor executor = new ShardedRequestExecutor(true, 4);
+        List<Integer> handled = new ArrayList<>();
+        Set<String> threads = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            int request = i;
+            executor.execute("ABC", () -> {
+                handled.add(request);
+                threads.add(Thread.currentThread().getName());
+            });
+        }
+        executor.shutdown();
+
+        assertThat(handled).containsExactlyElementsOf(IntStream.range(0, 1000).boxed().toList());
+        assertThat(threads).containsExactly("matching-shard-" + executor.shardOf("ABC"));
+    }
+
+    @Test
+    void runs_a_request_spanning_several_shards_while_those_shards_are_parked() throws InterruptedException {
+        ShardedRequestExecutor executor = new ShardedRequestExecutor(true, 4);
+        String first = "ABC";
+        String second = IntStream.range(0, 100).mapToObj(i -> "ISIN" + i)
+                .filter(isin -> executor.shardOf(isin) != executor.shardOf(first)).findFirst().orElseThrow();
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+        executor.execute(second, () -> handled.add("second-before"));
+        executor.executeAcross(List.of(first, second), () -> {
+            handled.add("batch-start");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add("batch-end");
+        });
+        executor.execute(first, () -> handled.add("first-after"));
+        executor.execute(second, () -> handled.add("second-after"));
+        executor.shutdown();
+
+        assertThat(handled.subList(0, 3)).containsExactly("second-before", "batch-start", "batch-end");
+        assertThat(handled.subList(3, 5)).containsExactlyInAnyOrder("first-after", "second-after");
+    }
+
+    @Test
+    void drains_queued_requests_when_stopped_before_the_listeners_and_persistence() {
+        ShardedRequestExecutor executor = new ShardedRequestExecutor(true, 2);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        executor.start();
+        for (int i = 0; i < 100; i++) {
+            int request = i;
+            executor.execute("ABC", () -> handled.add(request));
+        }
+        executor.stop();
+
+        assertThat(handled).hasSize(100);
+        assertThat(executor.isRunning()).isFalse();
+        assertThat(executor.getPhase()).isLessThan(SmartLifecycle.DEFAULT_PHASE);
+    }
+}